@@ -0,0 +1,72 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.geoevent.transport.amqp10.benchmark.LoopbackBroker;
+import com.esri.geoevent.transport.amqp10.benchmark.StubByteListener;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one delivery from the decoding of the message sections through {@code AMQP10ConsumerService.dispatch()},
+ * the body extraction and {@code ByteListener.receive()} to the settlement. Lives in the transport package because
+ * {@code dispatch()} is package-private; the consumer service is never started, so it needs no broker.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceivePathBenchmark {
+    @Param({"100", "1024", "16384", "1048576"})
+    private int payloadSize;
+
+    private LoopbackBroker broker;
+    private byte[] encoded;
+    private AMQP10ConsumerService consumerService;
+    private AMQPMessage preSettledMessage;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) throws Exception {
+        broker = new LoopbackBroker();
+        encoded = LoopbackBroker.encode(LoopbackBroker.randomPayload(payloadSize));
+        AMQP10ConnectionInfo connectionInfo = new AMQP10ConnectionInfo("localhost", "5672", "false", "false", null, null, null, null, null, null, null, null, null);
+        AMQP10DestinationInfo destinationInfo = new AMQP10DestinationInfo("Queue", "benchmark", null, null);
+        AMQP10ConsumerInfo consumerInfo = new AMQP10ConsumerInfo(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+        preSettledMessage = broker.deliverPreSettled(encoded);
+        consumerService = new AMQP10ConsumerService(null, null, destinationInfo, consumerInfo, new StubByteListener(blackhole), null, new AMQP10InputMetrics(connectionInfo, destinationInfo), 5000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        consumerService.stop();
+    }
+
+    @Benchmark
+    public void receive() throws Exception {
+        consumerService.dispatch(broker.deliver(encoded));
+    }
+
+    /**
+     * Dispatches the same decoded, pre-settled message over and over, so that {@code -prof gc} shows what the receive
+     * path itself allocates per message, apart from decoding the message.
+     */
+    @Benchmark
+    public void dispatchDecoded() throws Exception {
+        consumerService.dispatch(preSettledMessage);
+    }
+}
@@ -0,0 +1,87 @@
+package com.esri.geoevent.transport.amqp10.benchmark;
+
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Data;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An in-process stand-in for the broker end of a receiver link. It encodes messages the way they travel in transfer
+ * frames once, and hands out freshly decoded {@link LoopbackMessage}s for every delivery. Dispositions are written into
+ * a frame buffer under a lock, like the SwiftMQ client serializes its outgoing frames on the connection.
+ */
+public class LoopbackBroker {
+    private static final int DISPOSITION_FRAME_SIZE = 32;
+    private final Object frameLock = new Object();
+    private final ByteBuffer frameBuffer = ByteBuffer.allocate(64 * 1024);
+    private long nextDeliveryId;
+    private long accepted;
+    private long rejected;
+
+    public static byte[] randomPayload(int size) {
+        byte[] payload = new byte[size];
+        ThreadLocalRandom.current().nextBytes(payload);
+        return payload;
+    }
+
+    /**
+     * @return the encoded message sections of a message with a single Data section
+     */
+    public static byte[] encode(byte[] payload) throws IOException {
+        AMQPMessage message = new AMQPMessage();
+        message.addData(new Data(payload));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        message.writeContent(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes an encoded message as the client does for every incoming transfer.
+     */
+    public LoopbackMessage deliver(byte[] encoded) throws Exception {
+        return new LoopbackMessage(this, nextDeliveryId++, encoded, false);
+    }
+
+    /**
+     * Decodes an encoded message that the broker sent settled (AT_MOST_ONCE), so it needs no disposition.
+     */
+    public LoopbackMessage deliverPreSettled(byte[] encoded) throws Exception {
+        return new LoopbackMessage(this, nextDeliveryId++, encoded, true);
+    }
+
+    void settle(long deliveryId, boolean accept) {
+        synchronized (frameLock) {
+            if (frameBuffer.remaining() < DISPOSITION_FRAME_SIZE)
+                frameBuffer.clear();
+            frameBuffer.putInt(DISPOSITION_FRAME_SIZE);
+            frameBuffer.put((byte) 2);
+            frameBuffer.put((byte) 0);
+            frameBuffer.putShort((short) 0);
+            frameBuffer.putLong(deliveryId);
+            frameBuffer.putLong(deliveryId);
+            frameBuffer.putLong(accept ? 0x24L : 0x25L);
+            if (accept)
+                accepted++;
+            else
+                rejected++;
+        }
+    }
+
+    public long getAccepted() {
+        synchronized (frameLock) {
+            return accepted;
+        }
+    }
+
+    public long getRejected() {
+        synchronized (frameLock) {
+            return rejected;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.esri.geoevent.transport.amqp10.benchmark;
+
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+
+/**
+ * A message received from the {@link LoopbackBroker}. Settling it writes a disposition to the loopback broker instead of
+ * sending it over a link.
+ */
+public class LoopbackMessage extends AMQPMessage {
+    private final LoopbackBroker broker;
+    private final long deliveryId;
+    private boolean settled;
+
+    LoopbackMessage(LoopbackBroker broker, long deliveryId, byte[] encoded, boolean settled) throws Exception {
+        super(encoded);
+        this.broker = broker;
+        this.deliveryId = deliveryId;
+        this.settled = settled;
+    }
+
+    @Override
+    public boolean isSettled() {
+        return settled;
+    }
+
+    @Override
+    public void accept() {
+        settled = true;
+        broker.settle(deliveryId, true);
+    }
+
+    @Override
+    public void reject() {
+        settled = true;
+        broker.settle(deliveryId, false);
+    }
+}
@@ -0,0 +1,55 @@
+package com.esri.geoevent.transport.amqp10.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former copy of the message body into a freshly allocated buffer with wrapping the body array. Run with
+ * {@code -prof gc} to see the bytes allocated per message ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadHandOffBenchmark {
+    @Param({"100", "1024", "16384", "1048576"})
+    private int payloadSize;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        payload = new byte[payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+    }
+
+    @Benchmark
+    public void copy(Blackhole blackhole) {
+        ByteBuffer bb = ByteBuffer.allocate(payload.length);
+        bb.put(payload);
+        bb.flip();
+        blackhole.consume(bb);
+        bb.clear();
+    }
+
+    @Benchmark
+    public void wrap(Blackhole blackhole) {
+        blackhole.consume(ByteBuffer.wrap(payload));
+    }
+}
@@ -0,0 +1,28 @@
+package com.esri.geoevent.transport.amqp10.benchmark;
+
+import com.esri.ges.messaging.ByteListener;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stands in for the adapter. It reads the first and the last byte, so the body has to be materialized, and hands the
+ * buffer to the JMH black hole.
+ */
+public class StubByteListener implements ByteListener {
+    private final Blackhole blackhole;
+
+    public StubByteListener(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public void receive(ByteBuffer buffer, String channelId) {
+        if (buffer.hasRemaining()) {
+            blackhole.consume(buffer.get(buffer.position()));
+            blackhole.consume(buffer.get(buffer.limit() - 1));
+        }
+        blackhole.consume(buffer);
+        blackhole.consume(channelId);
+    }
+}
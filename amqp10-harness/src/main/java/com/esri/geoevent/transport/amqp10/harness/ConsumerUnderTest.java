@@ -0,0 +1,122 @@
+package com.esri.geoevent.transport.amqp10.harness;
+
+import com.esri.geoevent.transport.amqp10.AMQP10ConnectionInfo;
+import com.esri.geoevent.transport.amqp10.AMQP10ConnectionRegistry;
+import com.esri.geoevent.transport.amqp10.AMQP10ConnectionService;
+import com.esri.geoevent.transport.amqp10.AMQP10ConsumerInfo;
+import com.esri.geoevent.transport.amqp10.AMQP10ConsumerService;
+import com.esri.geoevent.transport.amqp10.AMQP10DestinationInfo;
+import com.esri.geoevent.transport.amqp10.AMQP10InputMetrics;
+import com.esri.geoevent.transport.amqp10.AMQP10TransportException;
+import com.esri.geoevent.transport.amqp10.AMQP10WorkerPool;
+import com.esri.ges.messaging.ByteListener;
+import com.swiftmq.amqp.v100.client.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the consumer side of the transport the way {@code AMQP10InboundTransport} does: a shared connection from the
+ * registry, a session, the worker pool and the consumers, and the relink after a reconnect. It does without the
+ * GeoEvent component life cycle, so it can run outside GeoEvent Server.
+ */
+public class ConsumerUnderTest {
+    private static final int TIMEOUT = 5000;
+    private final AMQP10ConnectionInfo connectionInfo;
+    private final AMQP10DestinationInfo destinationInfo;
+    private final AMQP10ConsumerInfo consumerInfo;
+    private final ByteListener byteListener;
+    private final List<AMQP10ConsumerService> consumerServices = new ArrayList<>();
+    private final AMQP10ConnectionService.Listener reconnectListener = new AMQP10ConnectionService.Listener() {
+        @Override
+        public void reconnected(AMQP10ConnectionService connectionService) {
+            relink();
+        }
+    };
+    private AMQP10ConnectionService connectionService;
+    private AMQP10InputMetrics metrics;
+    private AMQP10WorkerPool workerPool;
+    private Session session;
+    private int relinks;
+
+    public ConsumerUnderTest(AMQP10ConnectionInfo connectionInfo, AMQP10DestinationInfo destinationInfo, AMQP10ConsumerInfo consumerInfo, ByteListener byteListener) {
+        this.connectionInfo = connectionInfo;
+        this.destinationInfo = destinationInfo;
+        this.consumerInfo = consumerInfo;
+        this.byteListener = byteListener;
+    }
+
+    public synchronized void start() throws AMQP10TransportException {
+        connectionService = AMQP10ConnectionRegistry.acquire(connectionInfo, TIMEOUT);
+        connectionService.addListener(reconnectListener);
+        metrics = new AMQP10InputMetrics(connectionInfo, destinationInfo);
+        metrics.setConnectionService(connectionService);
+        metrics.register();
+        startLinks();
+    }
+
+    public synchronized void stop() {
+        stopLinks();
+        if (metrics != null) {
+            metrics.unregister();
+        }
+        if (connectionService != null) {
+            connectionService.removeListener(reconnectListener);
+            AMQP10ConnectionRegistry.release(connectionService);
+            connectionService = null;
+        }
+    }
+
+    public synchronized AMQP10InputMetrics getMetrics() {
+        return metrics;
+    }
+
+    public synchronized int getRelinks() {
+        return relinks;
+    }
+
+    private synchronized void relink() {
+        if (connectionService == null)
+            return;
+        stopLinks();
+        try {
+            startLinks();
+            relinks++;
+        } catch (AMQP10TransportException e) {
+            System.err.println("Relink failed: " + e.getMessage());
+        }
+    }
+
+    private void startLinks() throws AMQP10TransportException {
+        session = connectionService.createSession(connectionInfo.getSessionIncomingWindow(), connectionInfo.getSessionOutgoingWindow());
+        if (workerPool == null && consumerInfo.getWorkerThreads() > 0)
+            workerPool = new AMQP10WorkerPool(consumerInfo.getWorkerThreads(), destinationInfo.getLinkCredit());
+        for (int i = 0; i < consumerInfo.getConsumerCount(); i++) {
+            AMQP10ConsumerService consumerService = new AMQP10ConsumerService(
+                    connectionService.getConnection(),
+                    session,
+                    destinationInfo,
+                    consumerInfo,
+                    byteListener,
+                    workerPool,
+                    metrics,
+                    TIMEOUT);
+            consumerServices.add(consumerService);
+            consumerService.start();
+        }
+    }
+
+    private void stopLinks() {
+        if (workerPool != null) {
+            workerPool.shutdown(TIMEOUT);
+            workerPool = null;
+        }
+        for (AMQP10ConsumerService consumerService : consumerServices)
+            consumerService.stop();
+        consumerServices.clear();
+        if (connectionService != null) {
+            connectionService.closeSession(session);
+            session = null;
+        }
+    }
+}
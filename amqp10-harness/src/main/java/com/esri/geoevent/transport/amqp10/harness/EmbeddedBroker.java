@@ -0,0 +1,99 @@
+package com.esri.geoevent.transport.amqp10.harness;
+
+import org.apache.activemq.artemis.api.core.ActiveMQException;
+import org.apache.activemq.artemis.api.core.QueueConfiguration;
+import org.apache.activemq.artemis.api.core.RoutingType;
+import org.apache.activemq.artemis.api.core.SimpleString;
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.Queue;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.spi.core.protocol.RemotingConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An in-JVM AMQP 1.0 broker on localhost. It is an embedded ActiveMQ Artemis broker that only accepts AMQP, keeps
+ * messages in memory and has security disabled. Besides the broker itself it offers the faults the harness injects:
+ * dropping all client connections and withholding deliveries from the consumers of a queue.
+ */
+public class EmbeddedBroker {
+    private final int port;
+    private final String queueName;
+    private EmbeddedActiveMQ server;
+
+    public EmbeddedBroker(int port, String queueName) {
+        this.port = port;
+        this.queueName = queueName;
+    }
+
+    public void start() throws Exception {
+        Configuration configuration = new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .setJournalDirectory("target/harness/journal")
+                .setBindingsDirectory("target/harness/bindings")
+                .setLargeMessagesDirectory("target/harness/large-messages")
+                .setPagingDirectory("target/harness/paging")
+                .addAcceptorConfiguration("amqp", "tcp://127.0.0.1:" + port + "?protocols=AMQP");
+        configuration.addQueueConfiguration(new QueueConfiguration(queueName).setAddress(queueName).setRoutingType(RoutingType.ANYCAST));
+        server = new EmbeddedActiveMQ();
+        server.setConfiguration(configuration);
+        server.start();
+    }
+
+    public void stop() throws Exception {
+        if (server != null) {
+            try {
+                server.stop();
+            } finally {
+                server = null;
+            }
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return the number of messages waiting in the queue
+     */
+    public long getQueueDepth() {
+        Queue queue = queue();
+        return queue != null ? queue.getMessageCount() : 0L;
+    }
+
+    /**
+     * Fails every client connection as if the network between the clients and the broker had gone away.
+     *
+     * @return the number of connections dropped
+     */
+    public int dropConnections() {
+        List<RemotingConnection> connections = new ArrayList<>(server.getActiveMQServer().getRemotingService().getConnections());
+        for (RemotingConnection connection : connections)
+            connection.fail(new ActiveMQException("Connection dropped by the loopback harness"));
+        return connections.size();
+    }
+
+    /**
+     * Stops delivering messages from the queue, so consumers are left without messages although their link has credit,
+     * as when a broker withholds deliveries under load. Messages sent in the meantime pile up in the queue.
+     */
+    public void withholdDeliveries() throws Exception {
+        Queue queue = queue();
+        if (queue != null)
+            queue.pause();
+    }
+
+    public void resumeDeliveries() throws Exception {
+        Queue queue = queue();
+        if (queue != null)
+            queue.resume();
+    }
+
+    private Queue queue() {
+        return server != null ? server.getActiveMQServer().locateQueue(SimpleString.toSimpleString(queueName)) : null;
+    }
+}
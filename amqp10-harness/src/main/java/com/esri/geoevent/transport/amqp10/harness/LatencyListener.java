@@ -0,0 +1,65 @@
+package com.esri.geoevent.transport.amqp10.harness;
+
+import com.esri.ges.messaging.ByteListener;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stands in for the adapter. It reads the send time the {@link LoadGenerator} put at the start of every message and
+ * records the end-to-end latency in microseconds.
+ */
+public class LatencyListener implements ByteListener {
+    private final int frameSize;
+    private final int timestampOffset;
+    private final Recorder recorder = new Recorder(3);
+    private final LongAdder received = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final Histogram total = new Histogram(3);
+    private Histogram interval;
+
+    /**
+     * @param frameSize       the size of one message including its batch framing, used to split batched buffers
+     * @param timestampOffset the offset of the send time in a frame, i.e. the size of a length prefix
+     */
+    public LatencyListener(int frameSize, int timestampOffset) {
+        this.frameSize = frameSize;
+        this.timestampOffset = timestampOffset;
+    }
+
+    @Override
+    public void receive(ByteBuffer buffer, String channelId) {
+        long now = System.nanoTime();
+        // a batch holds several messages back to back, each with its own send time
+        for (int position = buffer.position() + timestampOffset; position + LoadGenerator.TIMESTAMP_SIZE <= buffer.limit(); position += frameSize) {
+            recorder.recordValue(Math.max(0L, TimeUnit.NANOSECONDS.toMicros(now - buffer.getLong(position))));
+            received.increment();
+        }
+        bytes.add(buffer.remaining());
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * @return the latencies recorded since the previous call; they are also added to the total
+     */
+    public synchronized Histogram interval() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return interval;
+    }
+
+    public synchronized Histogram total() {
+        interval();
+        return total;
+    }
+}
@@ -0,0 +1,120 @@
+package com.esri.geoevent.transport.amqp10.harness;
+
+import com.swiftmq.amqp.AMQPContext;
+import com.swiftmq.amqp.v100.client.Connection;
+import com.swiftmq.amqp.v100.client.Producer;
+import com.swiftmq.amqp.v100.client.QoS;
+import com.swiftmq.amqp.v100.client.Session;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.AmqpValue;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Data;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.AMQPBinary;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends messages of a fixed size to the broker at a fixed rate on its own connection. The first 8 bytes of every body
+ * carry the {@link System#nanoTime()} of the send, so the consumer in the same JVM can measure the end-to-end latency.
+ * When the broker is unreachable the generator reconnects and carries on; messages it could not send are counted.
+ */
+public class LoadGenerator implements Runnable {
+    public static final String BODY_DATA = "Data";
+    public static final String BODY_AMQP_VALUE = "AmqpValue";
+    public static final int TIMESTAMP_SIZE = 8;
+    private final int port;
+    private final String queueName;
+    private final int rate;
+    private final int messageSize;
+    private final String bodyEncoding;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean running;
+    private Thread thread;
+
+    public LoadGenerator(int port, String queueName, int rate, int messageSize, String bodyEncoding) {
+        this.port = port;
+        this.queueName = queueName;
+        this.rate = rate;
+        this.messageSize = Math.max(TIMESTAMP_SIZE, messageSize);
+        this.bodyEncoding = bodyEncoding;
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "amqp10-harness-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null)
+            thread.join();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public void run() {
+        byte[] payload = new byte[messageSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        long intervalNanos = 1_000_000_000L / rate;
+        long nextSend = System.nanoTime();
+        Connection connection = null;
+        Producer producer = null;
+        while (running) {
+            try {
+                if (producer == null) {
+                    connection = new Connection(new AMQPContext(AMQPContext.CLIENT), "127.0.0.1", port, false);
+                    connection.connect();
+                    Session session = connection.createSession(1000, 1000);
+                    // pre-settled, so the generator measures the consumer and not its own round trips
+                    producer = session.createProducer(queueName, QoS.AT_MOST_ONCE);
+                    nextSend = System.nanoTime();
+                }
+                long wait = nextSend - System.nanoTime();
+                if (wait > 0)
+                    LockSupport.parkNanos(wait);
+                ByteBuffer.wrap(payload).putLong(0, System.nanoTime());
+                producer.send(message(payload));
+                sent.increment();
+                // fall behind rather than burst when the broker or the network stalls
+                nextSend = Math.max(nextSend + intervalNanos, System.nanoTime() - intervalNanos);
+            } catch (Exception e) {
+                failed.increment();
+                close(connection);
+                connection = null;
+                producer = null;
+                LockSupport.parkNanos(100_000_000L);
+            }
+        }
+        close(connection);
+    }
+
+    private AMQPMessage message(byte[] payload) {
+        AMQPMessage message = new AMQPMessage();
+        if (BODY_AMQP_VALUE.equalsIgnoreCase(bodyEncoding))
+            message.setAmqpValue(new AmqpValue(new AMQPBinary(payload.clone())));
+        else
+            message.addData(new Data(payload.clone()));
+        return message;
+    }
+
+    private static void close(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.esri.geoevent.transport.amqp10.harness;
+
+import com.esri.geoevent.transport.amqp10.AMQP10ConnectionInfo;
+import com.esri.geoevent.transport.amqp10.AMQP10ConsumerInfo;
+import com.esri.geoevent.transport.amqp10.AMQP10DestinationInfo;
+import org.HdrHistogram.Histogram;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load and soak test of the consumer side of the transport against an in-JVM broker. It sends messages at a fixed
+ * rate, optionally drops the connections or withholds deliveries at fixed intervals, and prints the throughput, the
+ * end-to-end latency and the heap and GC activity every second and as a summary at the end.
+ * <p>
+ * Options are given as {@code --name=value}, see {@link #DEFAULTS}. With {@code --minRate} or {@code --maxP99} the
+ * harness exits with status 1 if the sustained rate or the p99 latency misses the limit, so it can gate a build.
+ */
+public final class LoopbackHarness {
+    private static final Map<String, String> DEFAULTS = new HashMap<>();
+
+    static {
+        DEFAULTS.put("port", "25672");
+        DEFAULTS.put("queue", "harness");
+        DEFAULTS.put("rate", "10000");
+        DEFAULTS.put("size", "1024");
+        DEFAULTS.put("body", LoadGenerator.BODY_DATA);
+        DEFAULTS.put("duration", "60");
+        DEFAULTS.put("dropEvery", "0");
+        DEFAULTS.put("withholdEvery", "0");
+        DEFAULTS.put("withholdFor", "5");
+        DEFAULTS.put("receiveMode", AMQP10ConsumerInfo.RECEIVE_MODE_PUSH);
+        DEFAULTS.put("consumers", "1");
+        DEFAULTS.put("workers", "0");
+        DEFAULTS.put("settlementMode", AMQP10ConsumerInfo.SETTLEMENT_MODE_INDIVIDUAL);
+        DEFAULTS.put("batchSize", "1");
+        DEFAULTS.put("batchFraming", AMQP10ConsumerInfo.BATCH_FRAMING_NEWLINE);
+        DEFAULTS.put("handOffQueueSize", "0");
+        DEFAULTS.put("linkCredit", "200");
+        DEFAULTS.put("creditReplenishThreshold", "0");
+        DEFAULTS.put("creditMode", AMQP10ConsumerInfo.CREDIT_MODE_FIXED);
+        DEFAULTS.put("minLinkCredit", "10");
+        DEFAULTS.put("maxLinkCredit", "1000");
+        DEFAULTS.put("reconnectDelay", "1000");
+        DEFAULTS.put("minRate", "0");
+        DEFAULTS.put("maxP99", "0");
+    }
+
+    private LoopbackHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0 || !DEFAULTS.containsKey(arg.substring(2, separator))) {
+                System.err.println("Unknown option " + arg + ", known options and defaults: " + DEFAULTS);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        System.exit(run(options) ? 0 : 1);
+    }
+
+    private static boolean run(Map<String, String> options) throws Exception {
+        int port = Integer.parseInt(options.get("port"));
+        String queue = options.get("queue");
+        int size = Math.max(LoadGenerator.TIMESTAMP_SIZE, Integer.parseInt(options.get("size")));
+        int duration = Integer.parseInt(options.get("duration"));
+        int dropEvery = Integer.parseInt(options.get("dropEvery"));
+        int withholdEvery = Integer.parseInt(options.get("withholdEvery"));
+        int withholdFor = Integer.parseInt(options.get("withholdFor"));
+
+        AMQP10ConnectionInfo connectionInfo = new AMQP10ConnectionInfo("127.0.0.1", String.valueOf(port), "false", "false", null, null, null, null, null, options.get("reconnectDelay"), null, null, null);
+        AMQP10DestinationInfo destinationInfo = new AMQP10DestinationInfo("Queue", queue, options.get("linkCredit"), options.get("creditReplenishThreshold"));
+        AMQP10ConsumerInfo consumerInfo = new AMQP10ConsumerInfo(options.get("receiveMode"), options.get("consumers"), options.get("workers"), null, options.get("settlementMode"), options.get("batchSize"), null, options.get("batchFraming"), options.get("handOffQueueSize"), null, null, null, null, null, null, options.get("creditMode"), options.get("minLinkCredit"), options.get("maxLinkCredit"));
+        connectionInfo.validate();
+        destinationInfo.validate();
+        consumerInfo.validate();
+
+        LatencyListener listener;
+        if (!consumerInfo.isBatchDelivery())
+            listener = new LatencyListener(size, 0);
+        else if (consumerInfo.isLengthPrefixedBatchFraming())
+            listener = new LatencyListener(size + 4, 4);
+        else
+            listener = new LatencyListener(size + 1, 0);
+
+        EmbeddedBroker broker = new EmbeddedBroker(port, queue);
+        broker.start();
+        ConsumerUnderTest consumer = new ConsumerUnderTest(connectionInfo, destinationInfo, consumerInfo, listener);
+        LoadGenerator generator = new LoadGenerator(port, queue, Integer.parseInt(options.get("rate")), size, options.get("body"));
+        Snapshot first;
+        Snapshot last;
+        long maxHeapUsed = 0L;
+        try {
+            consumer.start();
+            generator.start();
+            first = Snapshot.take(listener);
+            last = first;
+            System.out.println("second  msgs/s  p99(us)  max(us)  queued  heap(MB)  gc  gc(ms)");
+            int resumeAt = -1;
+            for (int second = 1; second <= duration; second++) {
+                TimeUnit.SECONDS.sleep(1);
+                if (dropEvery > 0 && second % dropEvery == 0)
+                    System.out.println("dropped " + broker.dropConnections() + " connections");
+                if (second == resumeAt) {
+                    broker.resumeDeliveries();
+                    resumeAt = -1;
+                }
+                if (withholdEvery > 0 && second % withholdEvery == 0 && resumeAt < 0) {
+                    broker.withholdDeliveries();
+                    resumeAt = second + withholdFor;
+                    System.out.println("withholding deliveries for " + withholdFor + " s");
+                }
+                Snapshot now = Snapshot.take(listener);
+                Histogram interval = listener.interval();
+                maxHeapUsed = Math.max(maxHeapUsed, now.heapUsed);
+                System.out.printf("%6d  %6.0f  %7d  %7d  %6d  %8d  %2d  %6d%n",
+                        second,
+                        now.rate(last),
+                        interval.getValueAtPercentile(99.0),
+                        interval.getMaxValue(),
+                        broker.getQueueDepth(),
+                        now.heapUsed >> 20,
+                        now.gcCount - last.gcCount,
+                        now.gcMillis - last.gcMillis);
+                last = now;
+            }
+        } finally {
+            generator.stop();
+            consumer.stop();
+            broker.stop();
+        }
+
+        Histogram total = listener.total();
+        double sustainedRate = last.rate(first);
+        System.out.println();
+        System.out.printf("sent %d (%d failed), received %d, relinks %d%n", generator.getSent(), generator.getFailed(), listener.getReceived(), consumer.getRelinks());
+        System.out.printf("sustained %.0f msgs/s, %.1f MB/s%n", sustainedRate, (last.bytes - first.bytes) / 1e6 / Math.max(1e-9, (last.nanos - first.nanos) / 1e9));
+        System.out.printf("latency us: p50 %d, p99 %d, p99.9 %d, max %d%n", total.getValueAtPercentile(50.0), total.getValueAtPercentile(99.0), total.getValueAtPercentile(99.9), total.getMaxValue());
+        System.out.printf("heap: max used %d MB, gc %d collections, %d ms%n", maxHeapUsed >> 20, last.gcCount - first.gcCount, last.gcMillis - first.gcMillis);
+
+        double minRate = Double.parseDouble(options.get("minRate"));
+        long maxP99 = Long.parseLong(options.get("maxP99"));
+        boolean passed = true;
+        if (minRate > 0 && sustainedRate < minRate) {
+            System.out.printf("FAILED: sustained rate %.0f msgs/s is below %.0f%n", sustainedRate, minRate);
+            passed = false;
+        }
+        if (maxP99 > 0 && total.getValueAtPercentile(99.0) > maxP99) {
+            System.out.printf("FAILED: p99 latency %d us is above %d us%n", total.getValueAtPercentile(99.0), maxP99);
+            passed = false;
+        }
+        return passed;
+    }
+
+    private static class Snapshot {
+        long nanos;
+        long received;
+        long bytes;
+        long heapUsed;
+        long gcCount;
+        long gcMillis;
+
+        static Snapshot take(LatencyListener listener) {
+            Snapshot snapshot = new Snapshot();
+            snapshot.nanos = System.nanoTime();
+            snapshot.received = listener.getReceived();
+            snapshot.bytes = listener.getBytes();
+            snapshot.heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                snapshot.gcCount += Math.max(0L, gc.getCollectionCount());
+                snapshot.gcMillis += Math.max(0L, gc.getCollectionTime());
+            }
+            return snapshot;
+        }
+
+        double rate(Snapshot since) {
+            double seconds = (nanos - since.nanos) / 1e9;
+            return seconds > 0 ? (received - since.received) / seconds : 0.0;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Extracts the bytes handed to the adapter from the body of an AMQP message.
+ */
+public interface AMQP10BodyExtractor {
+    /**
+     * @return the body of the message, or null if the extractor does not handle the body type of the message. The
+     * buffer may be backed by a per-thread buffer (see {@link AMQP10BufferPool}) and is then only valid until the next
+     * extraction on the same thread.
+     */
+    ByteBuffer extract(AMQPMessage message) throws Exception;
+}
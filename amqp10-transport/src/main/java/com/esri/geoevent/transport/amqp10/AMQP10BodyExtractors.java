@@ -0,0 +1,139 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.AmqpSequence;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.AmqpValue;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Data;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.AMQPBinary;
+import com.swiftmq.amqp.v100.types.AMQPString;
+import com.swiftmq.amqp.v100.types.AMQPType;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * The body extractors for the three AMQP 1.0 body types. {@link #defaultExtractor()} tries the Data sections first,
+ * which is what Azure Service Bus and most JMS clients send, so additional body types do not slow down the common case.
+ */
+public final class AMQP10BodyExtractors {
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final AMQP10BodyExtractor DEFAULT = composite(new DataExtractor(), new AmqpValueExtractor(), new AmqpSequenceExtractor());
+
+    private AMQP10BodyExtractors() {
+    }
+
+    public static AMQP10BodyExtractor defaultExtractor() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return an extractor that returns the result of the first extractor that handles the message
+     */
+    public static AMQP10BodyExtractor composite(final AMQP10BodyExtractor... extractors) {
+        return new AMQP10BodyExtractor() {
+            @Override
+            public ByteBuffer extract(AMQPMessage message) throws Exception {
+                for (AMQP10BodyExtractor extractor : extractors) {
+                    ByteBuffer body = extractor.extract(message);
+                    if (body != null)
+                        return body;
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Wraps a single Data section and joins multiple sections into one exactly sized buffer.
+     */
+    static class DataExtractor implements AMQP10BodyExtractor {
+        @Override
+        public ByteBuffer extract(AMQPMessage message) {
+            List<Data> dataList = message.getData();
+            if (dataList == null || dataList.isEmpty())
+                return null;
+            if (dataList.size() == 1)
+                return wrap(dataList.get(0).getValue());
+
+            int length = 0;
+            for (int i = 0; i < dataList.size(); i++) {
+                byte[] bytes = dataList.get(i).getValue();
+                if (bytes != null)
+                    length += bytes.length;
+            }
+            ByteBuffer body = AMQP10BufferPool.acquire(length);
+            for (int i = 0; i < dataList.size(); i++) {
+                byte[] bytes = dataList.get(i).getValue();
+                if (bytes != null)
+                    body.put(bytes);
+            }
+            body.flip();
+            return body;
+        }
+    }
+
+    /**
+     * Handles binary and string AmqpValue bodies as sent by Azure IoT Hub and Event Hubs clients.
+     */
+    static class AmqpValueExtractor implements AMQP10BodyExtractor {
+        @Override
+        public ByteBuffer extract(AMQPMessage message) throws Exception {
+            AmqpValue amqpValue = message.getAmqpValue();
+            if (amqpValue == null)
+                return null;
+            AMQPType value = amqpValue.getValue();
+            if (value instanceof AMQPBinary)
+                return wrap(((AMQPBinary) value).getValue());
+            if (value instanceof AMQPString) {
+                String string = ((AMQPString) value).getValue();
+                ByteBuffer body = AMQP10BufferPool.acquire(AMQP10BufferPool.maxEncodedLength(string));
+                AMQP10BufferPool.putUtf8(body, string);
+                body.flip();
+                return body;
+            }
+            throw new AMQP10TransportException(LOGGER.translate("MESSAGE_UNEXPECTED_TYPE", value != null ? value.getClass().getSimpleName() : "null"));
+        }
+    }
+
+    /**
+     * Joins the binary and string elements of all AmqpSequence sections into one buffer.
+     */
+    static class AmqpSequenceExtractor implements AMQP10BodyExtractor {
+        @Override
+        public ByteBuffer extract(AMQPMessage message) throws Exception {
+            List<AmqpSequence> sequences = message.getAmqpSequence();
+            if (sequences == null || sequences.isEmpty())
+                return null;
+
+            int length = 0;
+            for (AmqpSequence sequence : sequences) {
+                for (AMQPType element : sequence.getValue()) {
+                    if (element instanceof AMQPBinary)
+                        length += ((AMQPBinary) element).getValue().length;
+                    else if (element instanceof AMQPString)
+                        length += AMQP10BufferPool.maxEncodedLength(((AMQPString) element).getValue());
+                    else
+                        throw new AMQP10TransportException(LOGGER.translate("MESSAGE_UNEXPECTED_TYPE", element != null ? element.getClass().getSimpleName() : "null"));
+                }
+            }
+            ByteBuffer body = AMQP10BufferPool.acquire(length);
+            for (AmqpSequence sequence : sequences) {
+                for (AMQPType element : sequence.getValue()) {
+                    if (element instanceof AMQPBinary)
+                        body.put(((AMQPBinary) element).getValue());
+                    else
+                        AMQP10BufferPool.putUtf8(body, ((AMQPString) element).getValue());
+                }
+            }
+            body.flip();
+            return body;
+        }
+    }
+
+    private static ByteBuffer wrap(byte[] bytes) {
+        return bytes != null ? ByteBuffer.wrap(bytes) : EMPTY;
+    }
+}
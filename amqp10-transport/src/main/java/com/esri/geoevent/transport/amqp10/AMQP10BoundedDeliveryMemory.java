@@ -0,0 +1,56 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.swiftmq.amqp.v100.client.DefaultDeliveryMemory;
+import com.swiftmq.amqp.v100.client.UnsettledDelivery;
+import com.swiftmq.amqp.v100.generated.transport.definitions.DeliveryTag;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps track of the unsettled deliveries of a producer and gives a permit back to the sender for every delivery the
+ * broker settles. The sender takes a permit before every send, so sends are pipelined up to the configured number of
+ * unsettled deliveries instead of waiting for each settlement. The client library calls the memory on its own threads,
+ * so it never blocks; a sender that ran out of permits is woken up instead.
+ */
+public class AMQP10BoundedDeliveryMemory extends DefaultDeliveryMemory {
+    private final Semaphore permits;
+    private final Runnable settled;
+
+    /**
+     * @param settled called after a permit was given back
+     */
+    public AMQP10BoundedDeliveryMemory(Semaphore permits, Runnable settled) {
+        this.permits = permits;
+        this.settled = settled;
+    }
+
+    @Override
+    public synchronized void addUnsettledDelivery(UnsettledDelivery unsettledDelivery) {
+        super.addUnsettledDelivery(unsettledDelivery);
+    }
+
+    @Override
+    public void deliverySettled(DeliveryTag deliveryTag) {
+        synchronized (this) {
+            int unsettled = super.getNumberUnsettled();
+            super.deliverySettled(deliveryTag);
+            if (super.getNumberUnsettled() >= unsettled)
+                return;
+            permits.release();
+        }
+        settled.run();
+    }
+
+    /**
+     * @return the messages the broker has not settled yet, e.g. because the link was lost before
+     */
+    public synchronized List<AMQPMessage> getUnsettledMessages() {
+        List<AMQPMessage> messages = new ArrayList<>();
+        for (UnsettledDelivery delivery : getUnsettled())
+            messages.add(delivery.getMessage());
+        return messages;
+    }
+}
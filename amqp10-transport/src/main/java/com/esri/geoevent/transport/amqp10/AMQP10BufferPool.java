@@ -0,0 +1,60 @@
+package com.esri.geoevent.transport.amqp10;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Per-thread, reusable buffers for the cases where a message body has to be copied before it is handed to the
+ * adapter. Adapters consume the buffer synchronously, so the buffer can be reused for the next message received on
+ * the same thread. Buffers larger than {@link #MAX_RETAINED_CAPACITY} are not retained.
+ */
+final class AMQP10BufferPool {
+    static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<CharsetEncoder> UTF8_ENCODER = ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    private AMQP10BufferPool() {
+    }
+
+    /**
+     * @return a cleared buffer with at least the given capacity
+     */
+    static ByteBuffer acquire(int capacity) {
+        return acquire(BUFFER, capacity);
+    }
+
+    /**
+     * @return a cleared buffer with at least the given capacity from a slot of its own, for a buffer that is filled
+     * while the buffer of {@link #acquire(int)} is still in use
+     */
+    static ByteBuffer acquire(ThreadLocal<ByteBuffer> slot, int capacity) {
+        ByteBuffer buffer = slot.get();
+        if (buffer != null && buffer.capacity() >= capacity) {
+            buffer.clear();
+            return buffer;
+        }
+        if (capacity > MAX_RETAINED_CAPACITY)
+            return ByteBuffer.allocate(capacity);
+        buffer = ByteBuffer.allocate(Math.max(1024, Integer.highestOneBit(capacity - 1) << 1));
+        slot.set(buffer);
+        return buffer;
+    }
+
+    /**
+     * Encodes the string as UTF-8 into the buffer without creating an intermediate byte array. The buffer must have
+     * at least {@link #maxEncodedLength(String)} bytes remaining.
+     */
+    static void putUtf8(ByteBuffer buffer, CharSequence value) {
+        CharsetEncoder encoder = UTF8_ENCODER.get();
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(value), buffer, true);
+        encoder.flush(buffer);
+    }
+
+    static int maxEncodedLength(CharSequence value) {
+        return value.length() * 3;
+    }
+}
@@ -0,0 +1,227 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.AMQPLong;
+import com.swiftmq.amqp.v100.types.AMQPType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the offset of the last message received from every Event Hubs partition in a small file per partition, so that
+ * a restarted input resumes where it stopped instead of replaying the retention period. Offsets are recorded in memory
+ * for every message and written in batches, after {@code checkpointBatchSize} messages of a partition or every
+ * {@code checkpointInterval} milliseconds. A file is replaced atomically, so a crash leaves either the old or the new
+ * checkpoint. Messages received after the last write are received again after a crash.
+ */
+public class AMQP10CheckpointStore {
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private static final String OFFSET = "offset";
+    private static final String SEQUENCE_NUMBER = "sequenceNumber";
+    private final Path directory;
+    private final AMQP10EventHubInfo eventHubInfo;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private AMQP10SerialTask flushTask;
+
+    /**
+     * @param checkpointDirectory the directory shared by all inputs, see
+     *                            {@link AMQP10ClusterInfo#getCheckpointDirectory(AMQP10EventHubInfo)}
+     */
+    public AMQP10CheckpointStore(AMQP10EventHubInfo eventHubInfo, String checkpointDirectory, String hostname, String eventHubName) {
+        this.eventHubInfo = eventHubInfo;
+        directory = Paths.get(checkpointDirectory, hostname, eventHubName, eventHubInfo.getConsumerGroup());
+    }
+
+    /**
+     * @return the selector of a receiver link that starts after the given offset
+     */
+    public static String offsetSelector(String offset) {
+        return "amqp.annotation.x-opt-offset > '" + offset.replace("'", "''") + "'";
+    }
+
+    /**
+     * Starts the periodic writes on the shared monitor pool.
+     */
+    public synchronized void start() {
+        if (flushTask != null)
+            return;
+        final long interval = TimeUnit.MILLISECONDS.toNanos(eventHubInfo.getCheckpointInterval());
+        flushTask = new AMQP10SerialTask(new AMQP10SerialTask.Step() {
+            @Override
+            public long run() {
+                flush();
+                return interval;
+            }
+        }, AMQP10SharedExecutors.monitor());
+        flushTask.schedule(interval);
+    }
+
+    /**
+     * Stops the periodic writes and writes all offsets that were recorded since the last write.
+     */
+    public synchronized void stop() {
+        if (flushTask != null) {
+            try {
+                flushTask.cancel(eventHubInfo.getCheckpointInterval());
+            } finally {
+                flushTask = null;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * @return the checkpoint of a partition, loaded from its file the first time it is asked for
+     */
+    public Partition getPartition(String partitionId) {
+        Partition partition = partitions.get(partitionId);
+        if (partition == null) {
+            partition = new Partition(directory.resolve(partitionId + ".checkpoint"));
+            Partition existing = partitions.putIfAbsent(partitionId, partition);
+            if (existing != null)
+                partition = existing;
+        }
+        return partition;
+    }
+
+    public void flush() {
+        for (Partition partition : partitions.values())
+            partition.flush();
+    }
+
+    /**
+     * The checkpoint of one partition. Offsets are recorded by the thread that settles the messages of the partition's
+     * link and written by that thread or the flush task. With worker threads messages are settled out of order, so the
+     * checkpoint is the low watermark: the last message up to which every message received on the link was settled.
+     */
+    public class Partition {
+        private final Path file;
+        private String offset;
+        private long sequenceNumber = -1;
+        private int pending;
+        // the messages received on the current link that are not below the watermark yet, in the order they arrived
+        private final ArrayDeque<Received> received = new ArrayDeque<>();
+        private final Map<String, Received> receivedByOffset = new HashMap<>();
+
+        Partition(Path file) {
+            this.file = file;
+            load();
+        }
+
+        /**
+         * @return the selector the receiver link of the partition is opened with
+         */
+        public synchronized String getSelector() {
+            return offset != null ? offsetSelector(offset) : eventHubInfo.getStartSelector();
+        }
+
+        /**
+         * Forgets the messages received on the previous link. Must be called before the link is opened again; the
+         * messages that were not settled are received again on the new link.
+         */
+        public synchronized void reset() {
+            received.clear();
+            receivedByOffset.clear();
+        }
+
+        /**
+         * Notes a message in the order it was received, before it is handed on.
+         */
+        public void received(AMQPMessage message) {
+            String messageOffset = Util.asString(Util.getMessageAnnotation(message, "x-opt-offset"));
+            if (messageOffset == null)
+                return;
+            AMQPType annotation = Util.getMessageAnnotation(message, "x-opt-sequence-number");
+            Received entry = new Received(messageOffset, annotation instanceof AMQPLong ? ((AMQPLong) annotation).getValue() : -1);
+            synchronized (this) {
+                received.addLast(entry);
+                receivedByOffset.put(messageOffset, entry);
+            }
+        }
+
+        /**
+         * Records a settled message. The checkpoint only moves past it once all messages received before it were
+         * settled as well.
+         */
+        public void record(AMQPMessage message) {
+            String messageOffset = Util.asString(Util.getMessageAnnotation(message, "x-opt-offset"));
+            if (messageOffset == null)
+                return;
+            boolean due = false;
+            synchronized (this) {
+                Received entry = receivedByOffset.remove(messageOffset);
+                // a message of a previous link
+                if (entry == null)
+                    return;
+                entry.settled = true;
+                while (!received.isEmpty() && received.peekFirst().settled) {
+                    Received first = received.removeFirst();
+                    offset = first.offset;
+                    sequenceNumber = first.sequenceNumber;
+                    due = ++pending >= eventHubInfo.getCheckpointBatchSize();
+                }
+            }
+            if (due)
+                flush();
+        }
+
+        private synchronized void load() {
+            if (!Files.exists(file))
+                return;
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+                offset = properties.getProperty(OFFSET);
+                sequenceNumber = Long.parseLong(properties.getProperty(SEQUENCE_NUMBER, "-1"));
+            } catch (Exception e) {
+                offset = null;
+                sequenceNumber = -1;
+                LOGGER.warn("CHECKPOINT_READ_ERROR", e, file, e.getMessage());
+            }
+        }
+
+        synchronized void flush() {
+            if (pending == 0)
+                return;
+            Properties properties = new Properties();
+            properties.setProperty(OFFSET, offset);
+            properties.setProperty(SEQUENCE_NUMBER, Long.toString(sequenceNumber));
+            try {
+                Files.createDirectories(file.getParent());
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    properties.store(out, null);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                pending = 0;
+            } catch (IOException e) {
+                // the offset stays pending and the next flush tries again
+                LOGGER.warn("CHECKPOINT_WRITE_ERROR", e, file, e.getMessage());
+            }
+        }
+    }
+
+    private static final class Received {
+        final String offset;
+        final long sequenceNumber;
+        boolean settled;
+
+        Received(String offset, long sequenceNumber) {
+            this.offset = offset;
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.core.validation.Validatable;
+import com.esri.ges.core.validation.ValidationException;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.util.Converter;
+
+import java.net.InetAddress;
+import java.nio.file.Paths;
+
+public class AMQP10ClusterInfo implements Validatable {
+    public static final String MODE_STATIC = "Static";
+    public static final String MODE_LEASES = "Leases";
+    public static final String LEASE_STORE_PROPERTY = "com.esri.geoevent.transport.amqp10.leaseStore";
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private final String mode;
+    private final String leaseDirectory;
+    private final int leaseDuration;
+
+    public AMQP10ClusterInfo(String clusterMode, String leaseDirectory, String leaseDuration) {
+        this.mode = (clusterMode == null || clusterMode.isEmpty()) ? MODE_STATIC : clusterMode;
+        // a local default would let every member hold all leases of its own
+        this.leaseDirectory = (leaseDirectory == null || leaseDirectory.trim().isEmpty()) ? null : leaseDirectory.trim();
+        this.leaseDuration = Converter.convertToInteger(leaseDuration, 30000);
+    }
+
+    /**
+     * @return true if the cluster members split the work through leases instead of every member receiving everything
+     */
+    public boolean isLeased() {
+        return MODE_LEASES.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * @return the directory of the file lease store, which all cluster members must share, or null if none was
+     * configured
+     */
+    public String getLeaseDirectory() {
+        return leaseDirectory;
+    }
+
+    /**
+     * @return true if the system property {@value #LEASE_STORE_PROPERTY} names a lease store to use instead of the
+     * file lease store
+     */
+    public boolean isLeaseStorePlugged() {
+        String className = System.getProperty(LEASE_STORE_PROPERTY);
+        return className != null && !className.trim().isEmpty();
+    }
+
+    /**
+     * @return the directory the checkpoints of an event hub are kept in. With leases they are kept next to the leases,
+     * so that a partition taken over from another member resumes from the checkpoint that member wrote. With a plugged
+     * lease store and no lease directory the checkpoint directory must be shared instead.
+     */
+    public String getCheckpointDirectory(AMQP10EventHubInfo eventHubInfo) {
+        if (isLeased() && leaseDirectory != null)
+            return Paths.get(leaseDirectory, "checkpoints").toString();
+        return eventHubInfo.getCheckpointDirectory();
+    }
+
+    /**
+     * @return the time in milliseconds after which the work of a member that stopped renewing its leases is taken over
+     */
+    public int getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    /**
+     * @return the time in milliseconds between two renewals, a third of the lease duration so that a renewal may fail
+     * once without losing the leases
+     */
+    public int getRenewInterval() {
+        return leaseDuration / 3;
+    }
+
+    /**
+     * @return the name this cluster member holds its leases under: the system property
+     * {@value AMQP10EventHubInfo#CLUSTER_MEMBER_PROPERTY} or the host name
+     */
+    public String getNodeId() {
+        String configured = System.getProperty(AMQP10EventHubInfo.CLUSTER_MEMBER_PROPERTY);
+        if (configured != null && !configured.trim().isEmpty())
+            return configured.trim();
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "localhost";
+        }
+    }
+
+    /**
+     * @return the lease store named by the system property {@value #LEASE_STORE_PROPERTY}, a class with a public
+     * constructor that takes this cluster info, or the file lease store
+     */
+    public AMQP10LeaseStore createLeaseStore() throws AMQP10TransportException {
+        if (!isLeaseStorePlugged())
+            return new AMQP10FileLeaseStore(this);
+        String className = System.getProperty(LEASE_STORE_PROPERTY);
+        try {
+            Class<?> storeClass = Class.forName(className.trim(), true, AMQP10ClusterInfo.class.getClassLoader());
+            return (AMQP10LeaseStore) storeClass.getConstructor(AMQP10ClusterInfo.class).newInstance(this);
+        } catch (Exception e) {
+            throw new AMQP10TransportException(LOGGER.translate("LEASE_STORE_CREATE_ERROR", className, e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (!MODE_STATIC.equalsIgnoreCase(mode) && !MODE_LEASES.equalsIgnoreCase(mode))
+            throw new ValidationException(LOGGER.translate("CLUSTER_MODE_VALIDATE_ERROR"));
+        if (leaseDuration < 3000)
+            throw new ValidationException(LOGGER.translate("CLUSTER_LEASE_DURATION_VALIDATE_ERROR"));
+        if (isLeased() && leaseDirectory == null && !isLeaseStorePlugged())
+            throw new ValidationException(LOGGER.translate("CLUSTER_LEASE_STORE_VALIDATE_ERROR", LEASE_STORE_PROPERTY));
+    }
+}
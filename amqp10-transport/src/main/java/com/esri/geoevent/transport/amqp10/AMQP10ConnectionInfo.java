@@ -30,6 +30,8 @@ import com.esri.ges.framework.i18n.BundleLogger;
 import com.esri.ges.framework.i18n.BundleLoggerFactory;
 import com.esri.ges.util.Converter;
 
+import java.util.Objects;
+
 public class AMQP10ConnectionInfo implements Validatable {
     private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
     private final String hostname;
@@ -39,8 +41,14 @@ public class AMQP10ConnectionInfo implements Validatable {
     private final String saslAuthenticationType;
     private final String username;
     private final String password;
-
-    public AMQP10ConnectionInfo(String hostname, String port, String tls, String authenticationRequired, String saslAuthenticationType, String username, String password) {
+    private final long sessionIncomingWindow;
+    private final long sessionOutgoingWindow;
+    private final int reconnectDelay;
+    private final int maxReconnectDelay;
+    private final int circuitBreakerThreshold;
+    private final int circuitBreakerOpenTime;
+
+    public AMQP10ConnectionInfo(String hostname, String port, String tls, String authenticationRequired, String saslAuthenticationType, String username, String password, String sessionIncomingWindow, String sessionOutgoingWindow, String reconnectDelay, String maxReconnectDelay, String circuitBreakerThreshold, String circuitBreakerOpenTime) {
         this.hostname = hostname;
         this.port = Converter.convertToInteger(port, 5671);
         this.tls = Converter.convertToBoolean(tls, true);
@@ -48,6 +56,12 @@ public class AMQP10ConnectionInfo implements Validatable {
         this.saslAuthenticationType = saslAuthenticationType;
         this.username = username;
         this.password = password;
+        this.sessionIncomingWindow = Converter.convertToInteger(sessionIncomingWindow, 100);
+        this.sessionOutgoingWindow = Converter.convertToInteger(sessionOutgoingWindow, 100);
+        this.reconnectDelay = Converter.convertToInteger(reconnectDelay, 1000);
+        this.maxReconnectDelay = Converter.convertToInteger(maxReconnectDelay, 300000);
+        this.circuitBreakerThreshold = Converter.convertToInteger(circuitBreakerThreshold, 10);
+        this.circuitBreakerOpenTime = Converter.convertToInteger(circuitBreakerOpenTime, 60000);
     }
 
     public String getHostname() {
@@ -78,12 +92,51 @@ public class AMQP10ConnectionInfo implements Validatable {
         return password;
     }
 
+    public long getSessionIncomingWindow() {
+        return sessionIncomingWindow;
+    }
+
+    public long getSessionOutgoingWindow() {
+        return sessionOutgoingWindow;
+    }
+
+    /**
+     * @return the base delay in milliseconds before reconnecting, the delay grows exponentially from there
+     */
+    public int getReconnectDelay() {
+        return reconnectDelay;
+    }
+
+    public int getMaxReconnectDelay() {
+        return maxReconnectDelay;
+    }
+
+    /**
+     * @return the number of consecutive failed reconnects after which reconnecting is suspended, 0 to never suspend
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * @return the time in milliseconds reconnecting is suspended before a single trial reconnect is made
+     */
+    public int getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
     @Override
     public void validate() throws ValidationException {
         if (hostname == null || hostname.isEmpty())
             throw new ValidationException(LOGGER.translate("CONNECTION_HOST_VALIDATE_ERROR"));
         if (port <= 0)
             throw new ValidationException(LOGGER.translate("CONNECTION_PORT_VALIDATE_ERROR"));
+        if (sessionIncomingWindow <= 0 || sessionOutgoingWindow <= 0)
+            throw new ValidationException(LOGGER.translate("CONNECTION_SESSION_WINDOW_VALIDATE_ERROR"));
+        if (reconnectDelay <= 0 || maxReconnectDelay < reconnectDelay)
+            throw new ValidationException(LOGGER.translate("CONNECTION_RECONNECT_DELAY_VALIDATE_ERROR"));
+        if (circuitBreakerThreshold < 0 || circuitBreakerOpenTime <= 0)
+            throw new ValidationException(LOGGER.translate("CONNECTION_CIRCUIT_BREAKER_VALIDATE_ERROR"));
         if (port == 5672 && tls)
             LOGGER.warn("CONNECTION_PORT_AND_TLS_WARNING");
         if (authenticationRequired) {
@@ -95,4 +148,36 @@ public class AMQP10ConnectionInfo implements Validatable {
                 throw new ValidationException(LOGGER.translate("CONNECTION_PASSWORD_VALIDATE_ERROR"));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Two connection infos are equal if they describe the same broker, credentials and settings. Inputs and outputs
+     * only share a connection if all their settings agree, so that none of them runs with the session windows or the
+     * reconnect and circuit breaker settings of another.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        AMQP10ConnectionInfo that = (AMQP10ConnectionInfo) o;
+        return port == that.port
+                && tls == that.tls
+                && authenticationRequired == that.authenticationRequired
+                && sessionIncomingWindow == that.sessionIncomingWindow
+                && sessionOutgoingWindow == that.sessionOutgoingWindow
+                && reconnectDelay == that.reconnectDelay
+                && maxReconnectDelay == that.maxReconnectDelay
+                && circuitBreakerThreshold == that.circuitBreakerThreshold
+                && circuitBreakerOpenTime == that.circuitBreakerOpenTime
+                && (hostname == null ? that.hostname == null : hostname.equalsIgnoreCase(that.hostname))
+                && (saslAuthenticationType == null ? that.saslAuthenticationType == null : saslAuthenticationType.equalsIgnoreCase(that.saslAuthenticationType))
+                && Objects.equals(username, that.username)
+                && Objects.equals(password, that.password);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hostname == null ? null : hostname.toLowerCase(), port, tls, authenticationRequired, username, sessionIncomingWindow, sessionOutgoingWindow, reconnectDelay, maxReconnectDelay, circuitBreakerThreshold, circuitBreakerOpenTime);
+    }
+}
@@ -0,0 +1,61 @@
+package com.esri.geoevent.transport.amqp10;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares one connection between all inputs and outputs that connect to the same broker with the same credentials and
+ * settings, see {@link AMQP10ConnectionInfo#equals(Object)}. Every user acquires the connection and releases it when
+ * it stops; the connection is closed when the last user releases it.
+ */
+public final class AMQP10ConnectionRegistry {
+    private static final Map<AMQP10ConnectionInfo, SharedConnection> CONNECTIONS = new HashMap<>();
+
+    private AMQP10ConnectionRegistry() {
+    }
+
+    /**
+     * @return the connection service for the broker, started if this is its first user. Only the users of the same
+     * broker wait for its handshake, connections to other brokers are established in parallel. Later users attach to
+     * the service as it is; while its connection is down they wait for the {@link AMQP10ConnectionService.Listener}.
+     */
+    public static AMQP10ConnectionService acquire(AMQP10ConnectionInfo connectionInfo, int timeout) throws AMQP10TransportException {
+        SharedConnection shared;
+        synchronized (CONNECTIONS) {
+            shared = CONNECTIONS.get(connectionInfo);
+            if (shared == null) {
+                shared = new SharedConnection(new AMQP10ConnectionService(connectionInfo, timeout));
+                CONNECTIONS.put(connectionInfo, shared);
+            }
+            shared.references++;
+        }
+        try {
+            shared.service.start();
+        } catch (AMQP10TransportException e) {
+            release(shared.service);
+            throw e;
+        }
+        return shared.service;
+    }
+
+    public static void release(AMQP10ConnectionService service) {
+        synchronized (CONNECTIONS) {
+            SharedConnection shared = CONNECTIONS.get(service.getConnectionInfo());
+            if (shared == null || shared.service != service)
+                return;
+            if (--shared.references > 0)
+                return;
+            CONNECTIONS.remove(service.getConnectionInfo());
+        }
+        service.stop();
+    }
+
+    private static class SharedConnection {
+        private final AMQP10ConnectionService service;
+        private int references;
+
+        SharedConnection(AMQP10ConnectionService service) {
+            this.service = service;
+        }
+    }
+}
@@ -31,29 +31,50 @@ import com.swiftmq.amqp.AMQPContext;
 import com.swiftmq.amqp.v100.client.*;
 import com.swiftmq.net.JSSESocketFactory;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AMQP10ConnectionService implements AMQP10Service {
-    public static final int MAX_WAIT_TIME_MILLIS = 300000;
     private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
     private final AMQP10ConnectionInfo connectionInfo;
     private final int timeout;
     private final AMQPContext ctx;
-    private Connection connection;
-    private Session session;
-    private ScheduledExecutorService monitorService;
-    private int retryCount;
+    private final AMQP10ReconnectPolicy reconnectPolicy;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong reconnectCount = new AtomicLong();
+    private final AtomicLong failedReconnectCount = new AtomicLong();
+    private volatile Connection connection;
+    private volatile boolean connected;
+    private final AtomicBoolean lost = new AtomicBoolean();
+    private volatile AMQP10SerialTask monitor;
+    private volatile AMQP10SerialTask reconnector;
+
+    /**
+     * Notified on the reconnect task after a lost connection has been re-established. Sessions and links of the lost
+     * connection are gone and have to be created again.
+     */
+    public interface Listener {
+        void reconnected(AMQP10ConnectionService connectionService);
+    }
 
     public AMQP10ConnectionService(AMQP10ConnectionInfo connectionInfo, int timeout) {
         this.connectionInfo = connectionInfo;
         this.timeout = timeout;
-        retryCount = 0;
+        reconnectPolicy = AMQP10ReconnectPolicy.of(connectionInfo);
         ctx = new AMQPContext(AMQPContext.CLIENT);
     }
 
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
     public Connection getConnection() throws AMQP10TransportException {
         if (isRunning()) {
             return connection;
@@ -61,116 +82,140 @@ public class AMQP10ConnectionService implements AMQP10Service {
         throw new AMQP10TransportException(LOGGER.translate("CONNECTION_SERVICE_NOT_RUNNING_ERROR", connectionInfo.getHostname()));
     }
 
-    public Session getSession() throws AMQP10TransportException {
-        if (isRunning()) {
+    /**
+     * @return the number of times the connection was re-established after it had been lost
+     */
+    public long getReconnectCount() {
+        return reconnectCount.get();
+    }
+
+    public long getFailedReconnectCount() {
+        return failedReconnectCount.get();
+    }
+
+    public AMQP10ConnectionInfo getConnectionInfo() {
+        return connectionInfo;
+    }
+
+    /**
+     * Creates a new session on the shared connection. Every input uses its own session, so that its windows and
+     * links are independent of the other inputs that share the connection.
+     */
+    public synchronized Session createSession(long incomingWindow, long outgoingWindow) throws AMQP10TransportException {
+        if (!isRunning())
+            throw new AMQP10TransportException(LOGGER.translate("CONNECTION_SERVICE_NOT_RUNNING_ERROR", connectionInfo.getHostname()));
+        try {
+            Session session = connection.createSession(incomingWindow, outgoingWindow);
+            LOGGER.info("SESSION_CREATE_SUCCESS", connectionInfo.getHostname());
             return session;
+        } catch (ConnectionClosedException | SessionHandshakeException e) {
+            throw new AMQP10TransportException(LOGGER.translate("SESSION_CREATE_ERROR", connectionInfo.getHostname(), e.getMessage()));
+        }
+    }
+
+    public void closeSession(Session session) {
+        if (session != null) {
+            try {
+                session.close();
+            } catch (Exception ignored) {
+            }
         }
-        throw new AMQP10TransportException(LOGGER.translate("CONNECTION_SERVICE_NOT_RUNNING_ERROR", connectionInfo.getHostname()));
     }
 
     @Override
     public boolean isRunning() {
-        return connection != null && session != null && monitorService != null && !monitorService.isShutdown();
+        return connected && monitor != null;
     }
 
+    /**
+     * Connects and starts monitoring the connection. The checks run on the shared monitor pool; a reconnect blocks for
+     * the handshake and runs on the shared startup pool. A service that was started already is left alone, even while
+     * its connection is down, so that a new user does not bypass the back-off of the reconnect policy.
+     */
     @Override
     public synchronized void start() throws AMQP10TransportException {
-        if (!isRunning()) {
+        if (monitor == null) {
             stop();
-            Connection amqpConn;
-            Session amqpSession;
-            try {
-                if (!connectionInfo.isAuthenticationRequired()) {
-                    amqpConn = new Connection(ctx, connectionInfo.getHostname(), connectionInfo.getPort(), false);
-                } else {
-                    if ("ANONYMOUS".equalsIgnoreCase(connectionInfo.getSASLAuthenticationType())) {
-                        amqpConn = new Connection(ctx, connectionInfo.getHostname(), connectionInfo.getPort(), true);
-                    } else if ("PLAIN".equalsIgnoreCase(connectionInfo.getSASLAuthenticationType())) {
-                        amqpConn = new Connection(ctx, connectionInfo.getHostname(), connectionInfo.getPort(), connectionInfo.getUsername(), connectionInfo.getPassword());
-                        amqpConn.setMechanism("PLAIN");
-                    } else {
-                        throw new AMQP10TransportException("CONNECTION_SASL_AUTHENTICATION_TYPE_VALIDATE_ERROR");
-                    }
+            connect();
+            lost.set(false);
+            reconnector = new AMQP10SerialTask(new AMQP10SerialTask.Step() {
+                @Override
+                public long run() {
+                    reconnect();
+                    return AMQP10SerialTask.ON_WAKE_UP;
                 }
-                if (connectionInfo.isTlsConnection()) {
-                    amqpConn.setSocketFactory(new JSSESocketFactory());
+            }, AMQP10SharedExecutors.startup());
+            monitor = new AMQP10SerialTask(new AMQP10SerialTask.Step() {
+                @Override
+                public long run() {
+                    return check();
                 }
-                amqpConn.setOpenHostname(connectionInfo.getHostname());
-                amqpConn.setExceptionListener(new ExceptionListener() {
-                    @Override
-                    public void onException(Exception e) {
-                        LOGGER.error("CONNECTION_ERROR", connectionInfo.getHostname(), e.getMessage(), e);
-                        try {
-                            start();
-                        } catch (Exception ignored) {}
-                    }
-                });
-
-                amqpConn.connect();
-
-                LOGGER.info("CONNECTION_ESTABLISH_SUCCESS", connectionInfo.getHostname());
-            } catch (Throwable th) {
-                retryCount++;
-                throw new AMQP10TransportException(LOGGER.translate("CONNECTION_ESTABLISH_ERROR", connectionInfo.getHostname(), th.getMessage()));
-            }
-
-            try {
-                amqpSession = amqpConn.createSession(100, 100);
-                LOGGER.info("SESSION_CREATE_SUCCESS", connectionInfo.getHostname());
-            } catch (ConnectionClosedException | SessionHandshakeException e) {
-                retryCount++;
-                throw new AMQP10TransportException(LOGGER.translate("SESSION_CREATE_ERROR", connectionInfo.getHostname(), e.getMessage()));
-            }
-
-            connection = amqpConn;
-            session = amqpSession;
-
-            monitorService = Executors.newSingleThreadScheduledExecutor();
-            monitorService.schedule(new Callable<Void>() {
-                public Void call() {
-                    try {
-                        if (!isRunning()) {
-                            try {
-                                start();
-                            } catch (Exception ignored) {
-                                retryCount += 1;
-                            }
-                        } else {
-                            retryCount = 0;
-                        }
-                    } finally {
-                        long waitTime = (long) (Math.pow(2.0, (double) retryCount) * timeout);
-                        if (waitTime <= MAX_WAIT_TIME_MILLIS)
-                            monitorService.schedule(this, timeout, TimeUnit.MILLISECONDS);
-                        else
-                            monitorService.schedule(this, MAX_WAIT_TIME_MILLIS, TimeUnit.MILLISECONDS);
-                    }
-                    return null;
-                }
-            }, timeout, TimeUnit.MILLISECONDS);
-
-            retryCount = 0;
+            }, AMQP10SharedExecutors.monitor());
+            monitor.schedule(TimeUnit.MILLISECONDS.toNanos(timeout));
         }
     }
 
     @Override
     public synchronized void stop() {
-        try {
-            Util.shutdownExecutorService(monitorService, timeout);
-        } catch (Exception ignored) {
-        } finally {
-            monitorService = null;
-        }
-
-        if (session != null) {
+        if (monitor != null)
             try {
-                session.close();
-            } catch (Exception ignored) {
+                monitor.cancel(timeout);
             } finally {
-                session = null;
+                monitor = null;
             }
+        if (reconnector != null)
+            try {
+                reconnector.cancel(timeout);
+            } finally {
+                reconnector = null;
+            }
+        disconnect();
+        reconnectPolicy.onSuccess();
+    }
+
+    private synchronized void connect() throws AMQP10TransportException {
+        Connection amqpConn;
+        try {
+            if (!connectionInfo.isAuthenticationRequired()) {
+                amqpConn = new Connection(ctx, connectionInfo.getHostname(), connectionInfo.getPort(), false);
+            } else {
+                if ("ANONYMOUS".equalsIgnoreCase(connectionInfo.getSASLAuthenticationType())) {
+                    amqpConn = new Connection(ctx, connectionInfo.getHostname(), connectionInfo.getPort(), true);
+                } else if ("PLAIN".equalsIgnoreCase(connectionInfo.getSASLAuthenticationType())) {
+                    amqpConn = new Connection(ctx, connectionInfo.getHostname(), connectionInfo.getPort(), connectionInfo.getUsername(), connectionInfo.getPassword());
+                    amqpConn.setMechanism("PLAIN");
+                } else {
+                    throw new AMQP10TransportException("CONNECTION_SASL_AUTHENTICATION_TYPE_VALIDATE_ERROR");
+                }
+            }
+            if (connectionInfo.isTlsConnection()) {
+                amqpConn.setSocketFactory(new JSSESocketFactory());
+            }
+            amqpConn.setOpenHostname(connectionInfo.getHostname());
+            final Connection current = amqpConn;
+            amqpConn.setExceptionListener(new ExceptionListener() {
+                @Override
+                public void onException(Exception e) {
+                    // a connection that has already been replaced reports its close as well
+                    if (current != connection)
+                        return;
+                    LOGGER.error("CONNECTION_ERROR", connectionInfo.getHostname(), e.getMessage(), e);
+                    connectionLost();
+                }
+            });
+
+            amqpConn.connect();
+
+            LOGGER.info("CONNECTION_ESTABLISH_SUCCESS", connectionInfo.getHostname());
+        } catch (Throwable th) {
+            throw new AMQP10TransportException(LOGGER.translate("CONNECTION_ESTABLISH_ERROR", connectionInfo.getHostname(), th.getMessage()));
         }
+        connection = amqpConn;
+        connected = true;
+    }
 
+    private synchronized void disconnect() {
+        connected = false;
         if (connection != null) {
             try {
                 connection.close();
@@ -179,7 +224,55 @@ public class AMQP10ConnectionService implements AMQP10Service {
                 connection = null;
             }
         }
+    }
+
+    /**
+     * Called on the SwiftMQ I/O thread. Only wakes up the monitor, so that the library's thread is never blocked by a
+     * reconnect.
+     */
+    private void connectionLost() {
+        connected = false;
+        lost.set(true);
+        AMQP10SerialTask current = monitor;
+        if (current != null)
+            current.wakeUp();
+    }
 
-        retryCount = 0;
+    /**
+     * @return the nanoseconds until the next check, or {@link AMQP10SerialTask#ON_WAKE_UP} while a reconnect is pending
+     */
+    private long check() {
+        // the first attempt after a loss waits for the backoff of the reconnect policy
+        if (lost.getAndSet(false))
+            return TimeUnit.MILLISECONDS.toNanos(reconnectPolicy.onFailure());
+        if (connected)
+            return TimeUnit.MILLISECONDS.toNanos(timeout);
+        if (!reconnectPolicy.allowAttempt())
+            return TimeUnit.MILLISECONDS.toNanos(reconnectPolicy.getMillisUntilAttempt());
+        AMQP10SerialTask current = reconnector;
+        if (current == null)
+            return TimeUnit.MILLISECONDS.toNanos(timeout);
+        // the reconnect schedules the next check when it is done
+        current.wakeUp();
+        return AMQP10SerialTask.ON_WAKE_UP;
+    }
+
+    private void reconnect() {
+        long delay = timeout;
+        try {
+            disconnect();
+            connect();
+            reconnectPolicy.onSuccess();
+            reconnectCount.incrementAndGet();
+            for (Listener listener : listeners)
+                listener.reconnected(this);
+        } catch (AMQP10TransportException e) {
+            failedReconnectCount.incrementAndGet();
+            delay = reconnectPolicy.onFailure();
+            LOGGER.warn("CONNECTION_RECONNECT_SCHEDULED", connectionInfo.getHostname(), delay);
+        }
+        AMQP10SerialTask current = monitor;
+        if (current != null)
+            current.schedule(TimeUnit.MILLISECONDS.toNanos(delay));
     }
 }
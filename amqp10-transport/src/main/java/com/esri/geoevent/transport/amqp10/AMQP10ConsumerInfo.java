@@ -0,0 +1,273 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.core.validation.Validatable;
+import com.esri.ges.core.validation.ValidationException;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.util.Converter;
+
+import java.text.ParseException;
+
+public class AMQP10ConsumerInfo implements Validatable {
+    public static final String RECEIVE_MODE_PUSH = "Push";
+    public static final String RECEIVE_MODE_POLL = "Poll";
+    public static final String ORDERING_KEY_NONE = "None";
+    public static final String ORDERING_KEY_PARTITION = "PartitionKey";
+    public static final String ORDERING_KEY_SESSION = "SessionId";
+    public static final String SETTLEMENT_MODE_INDIVIDUAL = "Individual";
+    public static final String SETTLEMENT_MODE_PRE_SETTLED = "PreSettled";
+    public static final String BATCH_FRAMING_NEWLINE = "Newline";
+    public static final String BATCH_FRAMING_LENGTH_PREFIXED = "LengthPrefixed";
+    public static final String CREDIT_MODE_FIXED = "Fixed";
+    public static final String CREDIT_MODE_ADAPTIVE = "Adaptive";
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private final String receiveMode;
+    private final int consumerCount;
+    private final int workerThreads;
+    private final String orderingKey;
+    private final String settlementMode;
+    private final int batchSize;
+    private final int batchLinger;
+    private final String batchFraming;
+    private final int handOffQueueSize;
+    private final AMQP10MessageSelector messageSelector;
+    private final String messageSelectorError;
+    private final boolean selectorPushDown;
+    private final AMQP10PropertyProjection projection;
+    private final String projectionError;
+    private final String compression;
+    private final int maxDecompressedSize;
+    private final AMQP10BodyExtractor bodyExtractor;
+    private final String creditMode;
+    private final int minLinkCredit;
+    private final int maxLinkCredit;
+
+    public AMQP10ConsumerInfo(String receiveMode, String consumerCount, String workerThreads, String orderingKey, String settlementMode, String batchSize, String batchLinger, String batchFraming, String handOffQueueSize, String messageSelector, String selectorPushDown, String projectedProperties, String projectionFormat, String compression, String maxDecompressedSize, String creditMode, String minLinkCredit, String maxLinkCredit) {
+        this.receiveMode = (receiveMode == null || receiveMode.isEmpty()) ? RECEIVE_MODE_PUSH : receiveMode;
+        this.consumerCount = Converter.convertToInteger(consumerCount, 1);
+        this.workerThreads = Converter.convertToInteger(workerThreads, 0);
+        this.orderingKey = (orderingKey == null || orderingKey.isEmpty()) ? ORDERING_KEY_NONE : orderingKey;
+        this.settlementMode = (settlementMode == null || settlementMode.isEmpty()) ? SETTLEMENT_MODE_INDIVIDUAL : settlementMode;
+        this.batchSize = Converter.convertToInteger(batchSize, 1);
+        this.batchLinger = Converter.convertToInteger(batchLinger, 1000);
+        this.batchFraming = (batchFraming == null || batchFraming.isEmpty()) ? BATCH_FRAMING_NEWLINE : batchFraming;
+        this.handOffQueueSize = Converter.convertToInteger(handOffQueueSize, 0);
+        AMQP10MessageSelector selector = null;
+        String selectorError = null;
+        if (messageSelector != null && !messageSelector.trim().isEmpty()) {
+            try {
+                selector = AMQP10MessageSelector.compile(messageSelector.trim());
+            } catch (ParseException e) {
+                selectorError = e.getMessage();
+            }
+        }
+        this.messageSelector = selector;
+        this.messageSelectorError = selectorError;
+        this.selectorPushDown = Converter.convertToBoolean(selectorPushDown, true);
+        this.compression = (compression == null || compression.isEmpty()) ? AMQP10Decompression.CODEC_CONTENT_ENCODING : compression;
+        this.maxDecompressedSize = Converter.convertToInteger(maxDecompressedSize, 16777216);
+        // bodies are decompressed before the projected properties are put in front of them
+        AMQP10BodyExtractor decompressed = AMQP10BodyExtractors.defaultExtractor();
+        if (AMQP10Decompression.isValidCodec(this.compression) && this.maxDecompressedSize > 0)
+            decompressed = AMQP10Decompression.wrap(decompressed, this.compression, this.maxDecompressedSize);
+        AMQP10PropertyProjection compiledProjection = null;
+        String compileError = null;
+        try {
+            compiledProjection = AMQP10PropertyProjection.compile(projectedProperties, projectionFormat, decompressed);
+        } catch (ParseException e) {
+            compileError = e.getMessage();
+        }
+        this.projection = compiledProjection;
+        this.projectionError = compileError;
+        this.bodyExtractor = compiledProjection != null ? compiledProjection : decompressed;
+        this.creditMode = (creditMode == null || creditMode.isEmpty()) ? CREDIT_MODE_FIXED : creditMode;
+        this.minLinkCredit = Converter.convertToInteger(minLinkCredit, 10);
+        this.maxLinkCredit = Converter.convertToInteger(maxLinkCredit, 1000);
+    }
+
+    public String getReceiveMode() {
+        return receiveMode;
+    }
+
+    public boolean isPushReceiveMode() {
+        return RECEIVE_MODE_PUSH.equalsIgnoreCase(receiveMode);
+    }
+
+    /**
+     * @return the number of receiver links opened on the destination
+     */
+    public int getConsumerCount() {
+        return consumerCount;
+    }
+
+    /**
+     * @return the number of worker threads that process received messages, or 0 to process them on the receive thread
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public String getOrderingKey() {
+        return orderingKey;
+    }
+
+    public String getSettlementMode() {
+        return settlementMode;
+    }
+
+    /**
+     * @return true if the broker settles messages before sending them (AT_MOST_ONCE), so no dispositions are sent back
+     */
+    public boolean isPreSettled() {
+        return SETTLEMENT_MODE_PRE_SETTLED.equalsIgnoreCase(settlementMode);
+    }
+
+    /**
+     * @return the maximum number of messages handed to the adapter in one call, 1 disables batching
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isBatchDelivery() {
+        return batchSize > 1;
+    }
+
+    /**
+     * @return the maximum time in microseconds a message waits for its batch to fill up
+     */
+    public int getBatchLinger() {
+        return batchLinger;
+    }
+
+    public boolean isLengthPrefixedBatchFraming() {
+        return BATCH_FRAMING_LENGTH_PREFIXED.equalsIgnoreCase(batchFraming);
+    }
+
+    /**
+     * @return the number of received messages a consumer may queue for its delivery thread, or 0 to hand messages to
+     * the adapter on the receive thread
+     */
+    public int getHandOffQueueSize() {
+        return handOffQueueSize;
+    }
+
+    public boolean isHandOff() {
+        return handOffQueueSize > 0 && workerThreads == 0;
+    }
+
+    /**
+     * @return the compiled message selector, or null if all messages are received
+     */
+    public AMQP10MessageSelector getMessageSelector() {
+        return messageSelector;
+    }
+
+    /**
+     * @return true if the selector is sent to the broker as a filter of the receiver link
+     */
+    public boolean isSelectorPushDown() {
+        return selectorPushDown;
+    }
+
+    /**
+     * @return the extractor that puts the projected properties in front of the body, or null if none are projected
+     */
+    public AMQP10PropertyProjection getProjection() {
+        return projection;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return the maximum size in bytes of a decompressed message body
+     */
+    public int getMaxDecompressedSize() {
+        return maxDecompressedSize;
+    }
+
+    /**
+     * @return the extractor that turns a received message into the bytes handed to the adapter
+     */
+    public AMQP10BodyExtractor getBodyExtractor() {
+        return bodyExtractor;
+    }
+
+    /**
+     * @return true if the link credit follows the rate the adapter processes messages at, see
+     * {@link AMQP10CreditController}
+     */
+    public boolean isAdaptiveCredit() {
+        return CREDIT_MODE_ADAPTIVE.equalsIgnoreCase(creditMode);
+    }
+
+    /**
+     * @return the lowest link credit the adaptive credit controller shrinks a link to
+     */
+    public int getMinLinkCredit() {
+        return minLinkCredit;
+    }
+
+    /**
+     * @return the highest link credit the adaptive credit controller grows a link to
+     */
+    public int getMaxLinkCredit() {
+        return maxLinkCredit;
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (!RECEIVE_MODE_PUSH.equalsIgnoreCase(receiveMode) && !RECEIVE_MODE_POLL.equalsIgnoreCase(receiveMode))
+            throw new ValidationException(LOGGER.translate("CONSUMER_RECEIVE_MODE_VALIDATE_ERROR"));
+        if (consumerCount <= 0)
+            throw new ValidationException(LOGGER.translate("CONSUMER_COUNT_VALIDATE_ERROR"));
+        if (workerThreads < 0)
+            throw new ValidationException(LOGGER.translate("CONSUMER_WORKER_THREADS_VALIDATE_ERROR"));
+        if (!ORDERING_KEY_NONE.equalsIgnoreCase(orderingKey) && !ORDERING_KEY_PARTITION.equalsIgnoreCase(orderingKey) && !ORDERING_KEY_SESSION.equalsIgnoreCase(orderingKey))
+            throw new ValidationException(LOGGER.translate("CONSUMER_ORDERING_KEY_VALIDATE_ERROR"));
+        if (!SETTLEMENT_MODE_INDIVIDUAL.equalsIgnoreCase(settlementMode) && !SETTLEMENT_MODE_PRE_SETTLED.equalsIgnoreCase(settlementMode))
+            throw new ValidationException(LOGGER.translate("CONSUMER_SETTLEMENT_MODE_VALIDATE_ERROR"));
+        if (batchSize <= 0 || batchLinger < 0)
+            throw new ValidationException(LOGGER.translate("CONSUMER_BATCH_VALIDATE_ERROR"));
+        if (!BATCH_FRAMING_NEWLINE.equalsIgnoreCase(batchFraming) && !BATCH_FRAMING_LENGTH_PREFIXED.equalsIgnoreCase(batchFraming))
+            throw new ValidationException(LOGGER.translate("CONSUMER_BATCH_FRAMING_VALIDATE_ERROR"));
+        if (handOffQueueSize < 0 || (handOffQueueSize > 0 && workerThreads > 0))
+            throw new ValidationException(LOGGER.translate("CONSUMER_HAND_OFF_VALIDATE_ERROR"));
+        if (messageSelectorError != null)
+            throw new ValidationException(LOGGER.translate("CONSUMER_SELECTOR_VALIDATE_ERROR", messageSelectorError));
+        if (projectionError != null)
+            throw new ValidationException(LOGGER.translate("CONSUMER_PROJECTION_VALIDATE_ERROR", projectionError));
+        if (!AMQP10Decompression.isValidCodec(compression) || maxDecompressedSize <= 0)
+            throw new ValidationException(LOGGER.translate("CONSUMER_COMPRESSION_VALIDATE_ERROR"));
+        if (!CREDIT_MODE_FIXED.equalsIgnoreCase(creditMode) && !CREDIT_MODE_ADAPTIVE.equalsIgnoreCase(creditMode))
+            throw new ValidationException(LOGGER.translate("CONSUMER_CREDIT_MODE_VALIDATE_ERROR"));
+        if (isAdaptiveCredit() && (minLinkCredit < 2 || maxLinkCredit < minLinkCredit))
+            throw new ValidationException(LOGGER.translate("CONSUMER_ADAPTIVE_CREDIT_VALIDATE_ERROR"));
+    }
+}
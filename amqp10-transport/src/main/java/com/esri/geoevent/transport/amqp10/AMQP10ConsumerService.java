@@ -4,117 +4,237 @@ import com.esri.ges.framework.i18n.BundleLogger;
 import com.esri.ges.framework.i18n.BundleLoggerFactory;
 import com.esri.ges.messaging.ByteListener;
 import com.swiftmq.amqp.v100.client.*;
-import com.swiftmq.amqp.v100.generated.messaging.message_format.AmqpValue;
-import com.swiftmq.amqp.v100.generated.messaging.message_format.Data;
 import com.swiftmq.amqp.v100.messaging.AMQPMessage;
-import com.swiftmq.amqp.v100.types.AMQPBinary;
-import com.swiftmq.amqp.v100.types.AMQPString;
-import com.swiftmq.amqp.v100.types.AMQPType;
 
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 public class AMQP10ConsumerService implements AMQP10Service {
 
     public static final int MAX_WAIT_TIME_MILLIS = 300000;
+    public static final int MAX_RECEIVE_WAIT_MILLIS = 1000;
+    private static final long HAND_OFF_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    // items a deliverer run takes before it lets the tasks of other inputs have the thread
+    private static final int HAND_OFF_ITEMS_PER_RUN = 256;
     private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
     private final Connection connection;
     private final Session session;
     private final AMQP10DestinationInfo destinationInfo;
+    private final AMQP10ConsumerInfo consumerInfo;
     private final ByteListener byteListener;
+    private final AMQP10WorkerPool workerPool;
+    private final AMQP10InputMetrics metrics;
+    private final AMQP10BodyExtractor bodyExtractor;
+    private final AMQP10MessageBatch[] openBatches;
+    private final AMQP10HandOffRing<Object> handOffRing;
+    private final AMQP10CreditController creditController;
+    private AMQP10CheckpointStore.Partition checkpoint;
+    private AMQP10Spool spool;
+    private int spoolSource;
+    private final List<AMQPMessage> spooled = new ArrayList<>();
+    private long spooledSequence;
+    private long spooledSinceNanos;
+    private volatile AMQP10MessageSelector localSelector;
+    private boolean selectorRejected;
     private Consumer consumer;
     private final String channelId;
     private final int timeout;
-    private ScheduledExecutorService receiverService;
-    private int retryCount;
+    private final AMQP10ReconnectPolicy recoveryPolicy;
+    private AMQP10LinkScheduler pushReceiver;
+    private AMQP10SerialTask pollReceiver;
+    private volatile AMQP10SerialTask handOffDeliverer;
+    private volatile boolean stopped = true;
+    private boolean creditWithheld;
+    private int deliveredSinceReplenish;
+    private int grantedCredit;
 
-    public AMQP10ConsumerService(Connection connection, Session session, AMQP10DestinationInfo destinationInfo, ByteListener byteListener, int timeout) {
+    public AMQP10ConsumerService(Connection connection, Session session, AMQP10DestinationInfo destinationInfo, AMQP10ConsumerInfo consumerInfo, ByteListener byteListener, AMQP10WorkerPool workerPool, AMQP10InputMetrics metrics, int timeout) {
         this.connection = connection;
         this.session = session;
         this.destinationInfo = destinationInfo;
+        this.consumerInfo = consumerInfo;
         this.byteListener = byteListener;
+        this.workerPool = workerPool;
+        this.metrics = metrics;
         this.timeout = timeout;
+        bodyExtractor = consumerInfo.getBodyExtractor();
+        // with an ordering key every worker gets its own batch, so that a batch only holds messages of one worker
+        if (consumerInfo.isBatchDelivery())
+            openBatches = new AMQP10MessageBatch[workerPool != null && !AMQP10ConsumerInfo.ORDERING_KEY_NONE.equalsIgnoreCase(consumerInfo.getOrderingKey()) ? workerPool.size() : 1];
+        else
+            openBatches = null;
+        creditController = consumerInfo.isAdaptiveCredit() ? new AMQP10CreditController(destinationInfo.getLinkCredit(), consumerInfo.getMinLinkCredit(), consumerInfo.getMaxLinkCredit(), workerPool != null ? workerPool.size() : 1) : null;
+        // the ring holds at least one full credit window, so that credit is only withheld when the adapter falls behind
+        int maxCredit = creditController != null ? consumerInfo.getMaxLinkCredit() : destinationInfo.getLinkCredit();
+        handOffRing = consumerInfo.isHandOff() && workerPool == null ? new AMQP10HandOffRing<>(Math.max(consumerInfo.getHandOffQueueSize(), maxCredit), new Runnable() {
+            @Override
+            public void run() {
+                AMQP10SerialTask deliverer = handOffDeliverer;
+                if (deliverer != null)
+                    deliverer.wakeUp();
+            }
+        }) : null;
         // create a channel id per instance
         channelId = UUID.randomUUID().toString();
-        retryCount = 0;
+        // the connection service owns the circuit breaker, the link only backs off
+        recoveryPolicy = new AMQP10ReconnectPolicy(timeout, MAX_WAIT_TIME_MILLIS, 0, 0);
+    }
+
+    /**
+     * Opens the link with the offset filter of an Event Hubs partition and records the offset of every settled message.
+     * Must be called before the consumer is started.
+     */
+    public void setCheckpoint(AMQP10CheckpointStore.Partition checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Appends received messages to the spool instead of handing them to the adapter, and settles them once they are
+     * forced to disk. Must be called before the consumer is started.
+     *
+     * @param source the index of the destination, so that the spool reader records the processing time with its metrics
+     */
+    public void setSpool(AMQP10Spool spool, int source) {
+        this.spool = spool;
+        this.spoolSource = source;
     }
 
     @Override
     public boolean isRunning() {
-        return connection != null && session != null && receiverService != null && !receiverService.isShutdown();
+        if (connection == null || session == null)
+            return false;
+        return !stopped && consumer != null;
     }
 
+    /**
+     * Opens the link and receives from it on the shared receive pool: in push mode as soon as the SwiftMQ client reports
+     * a message, in poll mode every {@code timeout} milliseconds.
+     */
     @Override
     public synchronized void start() throws AMQP10TransportException {
         if (!isRunning()) {
-            try {
-                // Azure Service Bus does not appear to support the no-local-filter
-                consumer = session.createConsumer(destinationInfo.getName(), 200, QoS.AT_LEAST_ONCE, false, null);
-                LOGGER.info("CONSUMER_CREATE_SUCCESS", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName());
-            } catch (AMQPException e) {
-                throw new AMQP10TransportException(LOGGER.translate("CONSUMER_CREATE_ERROR", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName(), e.getMessage()), e);
+            openLink();
+            if (consumerInfo.isPushReceiveMode()) {
+                pushReceiver = new AMQP10LinkScheduler(connection.getOpenHostname(), timeout);
+                pushReceiver.add(this, destinationInfo);
+                pushReceiver.start();
+            } else {
+                pollReceiver = new AMQP10SerialTask(new PollReceiver(), AMQP10SharedExecutors.receive(), deliversInline());
+                pollReceiver.schedule(TimeUnit.MILLISECONDS.toNanos(timeout));
             }
-            receiverService = Executors.newSingleThreadScheduledExecutor();
-            receiverService.schedule(new Callable<Void>() {
-                public Void call() {
-                    try {
-                        if (isRunning()) {
-                            LOGGER.debug("CONSUMER_RECEIVE_POLL", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName());
-                            AMQPMessage message = consumer.receiveNoWait();
-                            while (message != null) {
-                                if (!message.isSettled())
-                                {
-                                    if (processed(message))
-                                        message.accept();
-                                    else
-                                        message.reject();
-                                    message = consumer.receiveNoWait();
-                                }
-                            }
-                        } else {
-                            retryCount++;
-                            LOGGER.error("CONSUMER_SERVICE_NOT_RUNNING_ERROR", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName());
-                            stop();
-                            start();
-                        }
-                    } catch (Exception e) {
-                        retryCount++;
-                        LOGGER.info("CONSUMER_RECEIVE_ERROR", e, connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName(), e.getMessage());
-                    } finally {
-                        long waitTime = (long) (Math.pow(2.0, (double) retryCount) * timeout);
-                        if (waitTime <= MAX_WAIT_TIME_MILLIS)
-                            receiverService.schedule(this, timeout, TimeUnit.MILLISECONDS);
-                        else
-                            receiverService.schedule(this, MAX_WAIT_TIME_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            throw new AMQP10TransportException(LOGGER.translate("CONSUMER_ALREADY_RUNNING", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName()));
+        }
+    }
 
-                    }
-                    return null;
-                }
-            }, timeout, TimeUnit.MILLISECONDS);
+    /**
+     * Opens the link without receiving from it; an {@link AMQP10LinkScheduler} shared with other links receives for it
+     * instead.
+     */
+    public synchronized void startScheduled() throws AMQP10TransportException {
+        if (isRunning())
+            throw new AMQP10TransportException(LOGGER.translate("CONSUMER_ALREADY_RUNNING", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName()));
+        openLink();
+    }
 
-            retryCount = 0;
-        } else {
-            retryCount++;
-            throw new AMQP10TransportException(LOGGER.translate("CONNECTION_NO_CONNECTION_OR_SESSION", connection.getOpenHostname()));
+    private void openLink() throws AMQP10TransportException {
+        try {
+            // Azure Service Bus does not appear to support the no-local-filter
+            int qos = consumerInfo.isPreSettled() ? QoS.AT_MOST_ONCE : QoS.AT_LEAST_ONCE;
+            AMQP10MessageSelector messageSelector = consumerInfo.getMessageSelector();
+            String selector;
+            if (checkpoint != null) {
+                // a reopened link resumes after the last recorded offset, not the last written one
+                checkpoint.reset();
+                selector = checkpoint.getSelector();
+            } else {
+                selector = messageSelector != null && consumerInfo.isSelectorPushDown() && !selectorRejected ? messageSelector.getText() : null;
+            }
+            // a reopened link starts with the credit the controller arrived at
+            grantedCredit = creditController != null ? creditController.getCredit() : destinationInfo.getLinkCredit();
+            try {
+                consumer = session.createConsumer(destinationInfo.getName(), grantedCredit, qos, false, selector);
+            } catch (AMQPException e) {
+                if (checkpoint != null || selector == null)
+                    throw e;
+                // the broker refused the filter, so the selector is evaluated here from now on
+                selectorRejected = true;
+                LOGGER.warn("CONSUMER_SELECTOR_REJECTED", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName(), e.getMessage());
+                consumer = session.createConsumer(destinationInfo.getName(), grantedCredit, qos, false, null);
+            }
+            localSelector = messageSelector != null && (checkpoint != null || !consumerInfo.isSelectorPushDown() || selectorRejected) ? messageSelector : null;
+            deliveredSinceReplenish = 0;
+            if (isCreditManaged())
+                metrics.creditGranted(grantedCredit);
+            LOGGER.info("CONSUMER_CREATE_SUCCESS", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName());
+        } catch (AMQPException e) {
+            throw new AMQP10TransportException(LOGGER.translate("CONSUMER_CREATE_ERROR", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName(), e.getMessage()), e);
+        }
+        if (handOffRing != null) {
+            // the deliverer calls the adapter, so it may block
+            handOffDeliverer = new AMQP10SerialTask(new HandOffDeliverer(), AMQP10SharedExecutors.receive(), true);
+            handOffDeliverer.wakeUp();
+            metrics.addHandOffRing(handOffRing);
         }
+        if (creditController != null)
+            metrics.addCreditController(creditController);
+        stopped = false;
     }
 
     @Override
     public synchronized void stop() {
-        try {
-            Util.shutdownExecutorService(receiverService, timeout);
-        } catch (Exception ignored) {
-        } finally {
-            receiverService = null;
+        stopped = true;
+        if (pushReceiver != null)
+            try {
+                pushReceiver.stop();
+            } finally {
+                pushReceiver = null;
+            }
+        if (pollReceiver != null)
+            try {
+                pollReceiver.cancel(timeout);
+            } finally {
+                pollReceiver = null;
+            }
+
+        // what the receiver handed off before it stopped is delivered for at most another timeout
+        if (handOffDeliverer != null) {
+            try {
+                handOffDeliverer.cancel(timeout);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+                Object item;
+                while (System.nanoTime() - deadline < 0 && (item = handOffRing.poll()) != null)
+                    deliverHandedOff(item);
+            } finally {
+                handOffDeliverer = null;
+                metrics.removeHandOffRing(handOffRing);
+                handOffRing.clear();
+            }
+        }
+
+        // messages of batches that were not delivered yet are not settled and will be redelivered by the broker
+        if (openBatches != null)
+            Arrays.fill(openBatches, null);
+
+        if (spool != null) {
+            try {
+                syncSpool();
+            } catch (Exception ignored) {
+            }
         }
 
+        if (creditController != null)
+            metrics.removeCreditController(creditController);
+
         if (consumer != null) {
+            // the credit left on the link is gone with it
+            if (isCreditManaged())
+                metrics.creditGranted(deliveredSinceReplenish - grantedCredit);
             try {
                 consumer.close();
             } catch (AMQPException ignored) {
@@ -122,24 +242,401 @@ public class AMQP10ConsumerService implements AMQP10Service {
                 consumer = null;
             }
         }
-        retryCount = 0;
     }
 
-    private boolean processed(AMQPMessage message) {
-        byte[] bytes = {};
-        if (message != null) {
-            List<Data> dataList = message.getData();
-            for (Data data : dataList) {
-                bytes = data.getValue();
+    /**
+     * Polls the consumer every {@code timeout} milliseconds and drains all messages that have arrived in between.
+     */
+    private class PollReceiver implements AMQP10SerialTask.Step {
+        // built once, so that every poll does not allocate a varargs array for a message that is usually not logged
+        private final Object[] pollLogArgs = {connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName()};
+
+        @Override
+        public long run() {
+            long delay = timeout;
+            try {
+                if (isRunning()) {
+                    LOGGER.debug("CONSUMER_RECEIVE_POLL", pollLogArgs);
+                    AMQPMessage message = hasHandOffRoom() ? consumer.receiveNoWait() : null;
+                    int drained = 0;
+                    while (message != null) {
+                        // pre-settled deliveries are dispatched as well, settle() leaves them alone
+                        dispatch(message);
+                        drained++;
+                        message = hasHandOffRoom() ? consumer.receiveNoWait() : null;
+                    }
+                    metrics.drained(drained);
+                    if (openBatches != null)
+                        deliverBatches(true);
+                    if (spool != null)
+                        syncSpool();
+                    replenishCredit();
+                    if (recoveryPolicy.hasFailures())
+                        recoveryPolicy.onSuccess();
+                } else {
+                    // relinking is left to the transport, see AMQP10InboundTransport.relink(); a stop() or start()
+                    // from here would wait for the service monitor while an external stop() waits for this poll
+                    if (!stopped)
+                        LOGGER.error("CONSUMER_SERVICE_NOT_RUNNING_ERROR", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName());
+                    return AMQP10SerialTask.ON_WAKE_UP;
+                }
+            } catch (Exception e) {
+                delay = recoveryPolicy.onFailure();
+                LOGGER.info("CONSUMER_RECEIVE_ERROR", e, connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName(), e.getMessage());
             }
+            return TimeUnit.MILLISECONDS.toNanos(delay);
         }
+    }
 
-        if (bytes != null && bytes.length > 0) {
-            ByteBuffer bb = ByteBuffer.allocate(bytes.length);
-            bb.put(bytes);
-            bb.flip();
-            byteListener.receive(bb, channelId);
-            bb.clear();
+    /**
+     * Hands a received message to the adapter, a batch or a worker. Package-private so that the benchmarks can drive the
+     * receive path without a broker.
+     */
+    void dispatch(final AMQPMessage message) throws Exception {
+        if (checkpoint != null)
+            checkpoint.received(message);
+        if (creditController != null)
+            creditController.received();
+        if (isCreditManaged()) {
+            deliveredSinceReplenish++;
+            replenishCredit();
+        }
+        // checked before the body is extracted, so a filtered message costs one look at its application properties
+        AMQP10MessageSelector selector = localSelector;
+        if (selector != null && !selector.matches(message)) {
+            metrics.received(0);
+            metrics.filtered();
+            settle(message, true);
+            return;
+        }
+        if (spool != null) {
+            spool(message);
+        } else if (openBatches != null) {
+            batch(message);
+        } else if (handOffRing != null) {
+            handOff(message);
+        } else if (workerPool == null) {
+            settle(message, processed(message, channelId));
+        } else {
+            workerPool.execute(getOrderingKey(message), new AMQP10WorkerPool.Task() {
+                @Override
+                public void run(String workerChannelId) throws Exception {
+                    settle(message, processed(message, workerChannelId));
+                }
+            });
+        }
+    }
+
+    /**
+     * @return true if the transport tops up the link credit instead of the client library
+     */
+    private boolean isCreditManaged() {
+        return creditController != null || destinationInfo.getCreditReplenishThreshold() > 0;
+    }
+
+    /**
+     * Tops up the link credit before it is exhausted, so that the broker does not have to wait for a flow frame. While
+     * the hand-off queue has no room for another credit window the credit is withheld and the broker keeps the
+     * messages. With adaptive credit the link is topped up to the credit the controller settled on.
+     */
+    private void replenishCredit() throws Exception {
+        if (!isCreditManaged())
+            return;
+        int threshold;
+        int credit;
+        if (creditController != null) {
+            creditController.update(System.nanoTime());
+            threshold = creditController.getReplenishThreshold(grantedCredit);
+            credit = creditController.getCredit();
+        } else {
+            threshold = destinationInfo.getCreditReplenishThreshold();
+            credit = destinationInfo.getLinkCredit();
+        }
+        if (deliveredSinceReplenish < grantedCredit - threshold)
+            return;
+        if (handOffRing != null && handOffRing.remainingCapacity() < credit) {
+            if (!creditWithheld) {
+                creditWithheld = true;
+                metrics.creditWithheld();
+                if (creditController != null)
+                    creditController.congested();
+            }
+            return;
+        }
+        creditWithheld = false;
+        consumer.setLinkCredit(credit);
+        // the link held what was left of the previous grant
+        metrics.creditGranted(credit - grantedCredit + deliveredSinceReplenish);
+        grantedCredit = credit;
+        deliveredSinceReplenish = 0;
+    }
+
+    private boolean hasHandOffRoom() {
+        return handOffRing == null || handOffRing.remainingCapacity() > 0;
+    }
+
+    /**
+     * Receives up to {@code max} messages without waiting, on behalf of the {@link AMQP10LinkScheduler}. Fewer messages
+     * are received when the link runs empty, in which case the listener is called once the next message arrives, or
+     * when the hand-off queue is full.
+     *
+     * @return the number of messages received
+     */
+    int receive(int max, MessageAvailabilityListener listener) throws Exception {
+        int received = 0;
+        while (received < max && hasHandOffRoom()) {
+            AMQPMessage message = consumer.receiveNoWait(listener);
+            if (message == null)
+                break;
+            dispatch(message);
+            received++;
+        }
+        metrics.drained(received);
+        if (openBatches != null)
+            deliverBatches(received < max);
+        if (spool != null && (received < max || nanosUntilSpoolDue() == 0))
+            syncSpool();
+        if (received < max)
+            replenishCredit();
+        return received;
+    }
+
+    boolean isBackPressured() {
+        return !hasHandOffRoom();
+    }
+
+    /**
+     * @return true if the receive thread calls the adapter itself, i.e. the consumer has no spool, hand-off queue or
+     * workers, so that receiving may block for as long as the adapter does
+     */
+    boolean deliversInline() {
+        return spool == null && handOffRing == null && workerPool == null;
+    }
+
+    /**
+     * @return the time until the oldest open batch is due, so that an idle scheduler wakes up in time to deliver it
+     */
+    long nanosUntilDue() {
+        long batchDue = openBatches != null ? nanosUntilBatchDeadline() : Long.MAX_VALUE;
+        return spool != null ? Math.min(batchDue, nanosUntilSpoolDue()) : batchDue;
+    }
+
+    /**
+     * Queues a message or a batch for the deliverer, waiting while the queue is full.
+     */
+    private void handOff(final Object item) throws Exception {
+        if (handOffRing.offer(item))
+            return;
+        // the receive pool gets a spare thread while this one waits for the deliverer
+        AMQP10SharedExecutors.block(new AMQP10SharedExecutors.Blocker<Void>() {
+            @Override
+            Void call() throws InterruptedException {
+                while (!handOffRing.offer(item)) {
+                    if (stopped || Thread.currentThread().isInterrupted())
+                        throw new InterruptedException();
+                    LockSupport.parkNanos(HAND_OFF_WAIT_NANOS);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Takes the messages and batches handed off by the receiver and passes them to the adapter on the shared receive
+     * pool, so that a slow adapter never blocks the receive loop. Goes idle when the ring is empty until the receiver
+     * hands off the next item.
+     */
+    private class HandOffDeliverer implements AMQP10SerialTask.Step {
+        @Override
+        public long run() {
+            for (int i = 0; i < HAND_OFF_ITEMS_PER_RUN; i++) {
+                Object item = handOffRing.poll();
+                if (item == null) {
+                    if (handOffRing.idle())
+                        return AMQP10SerialTask.ON_WAKE_UP;
+                    continue;
+                }
+                deliverHandedOff(item);
+            }
+            return AMQP10SerialTask.NOW;
+        }
+    }
+
+    private void deliverHandedOff(Object item) {
+        try {
+            if (item instanceof AMQP10MessageBatch)
+                deliver((AMQP10MessageBatch) item, channelId);
+            else
+                settle((AMQPMessage) item, processed((AMQPMessage) item, channelId));
+        } catch (Exception e) {
+            LOGGER.info("WORKER_TASK_ERROR", e, e.getMessage());
+        }
+    }
+
+    private void batch(AMQPMessage message) throws Exception {
+        ByteBuffer body;
+        try {
+            body = bodyExtractor.extract(message);
+        } catch (Exception e) {
+            LOGGER.warn("MESSAGE_DECODING_ERROR", e, e.getMessage());
+            metrics.received(0);
+            settle(message, false);
+            return;
+        }
+        metrics.received(body.remaining());
+        int slot = openBatches.length > 1 ? workerPool.indexOf(getOrderingKey(message)) : 0;
+        AMQP10MessageBatch batch = openBatches[slot];
+        if (batch == null) {
+            batch = new AMQP10MessageBatch(consumerInfo.getBatchSize(), consumerInfo.isLengthPrefixedBatchFraming(), System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(consumerInfo.getBatchLinger()));
+            openBatches[slot] = batch;
+        }
+        batch.add(message, body);
+        if (batch.size() >= consumerInfo.getBatchSize())
+            deliverBatch(slot);
+    }
+
+    /**
+     * Appends the body to the spool. The delivery is settled after the spool has been forced to disk, which happens for
+     * a whole run of messages at once.
+     */
+    private void spool(AMQPMessage message) throws Exception {
+        ByteBuffer body;
+        try {
+            body = bodyExtractor.extract(message);
+        } catch (Exception e) {
+            LOGGER.warn("MESSAGE_DECODING_ERROR", e, e.getMessage());
+            metrics.received(0);
+            settle(message, false);
+            return;
+        }
+        if (body == null || !body.hasRemaining()) {
+            metrics.received(0);
+            settle(message, true);
+            return;
+        }
+        metrics.received(body.remaining());
+        spooledSequence = spool.append(spoolSource, body);
+        if (spooled.isEmpty())
+            spooledSinceNanos = System.nanoTime();
+        spooled.add(message);
+        // the broker stops sending when the credit is used up, so the run is synced before that
+        if (spooled.size() >= Math.max(1, grantedCredit / 2))
+            syncSpool();
+    }
+
+    private long nanosUntilSpoolDue() {
+        if (spooled.isEmpty())
+            return Long.MAX_VALUE;
+        return Math.max(0L, spooledSinceNanos + TimeUnit.MILLISECONDS.toNanos(spool.getSyncInterval()) - System.nanoTime());
+    }
+
+    private void syncSpool() throws Exception {
+        if (spooled.isEmpty())
+            return;
+        spool.sync(spooledSequence);
+        try {
+            for (AMQPMessage message : spooled)
+                settle(message, true);
+        } finally {
+            spooled.clear();
+        }
+    }
+
+    private long nanosUntilBatchDeadline() {
+        long now = System.nanoTime();
+        long wait = Long.MAX_VALUE;
+        for (AMQP10MessageBatch batch : openBatches) {
+            if (batch != null)
+                wait = Math.min(wait, Math.max(0L, batch.getDeadlineNanos() - now));
+        }
+        return wait;
+    }
+
+    private void deliverBatches(boolean all) throws Exception {
+        long now = System.nanoTime();
+        for (int slot = 0; slot < openBatches.length; slot++) {
+            if (openBatches[slot] != null && (all || now - openBatches[slot].getDeadlineNanos() >= 0))
+                deliverBatch(slot);
+        }
+    }
+
+    private void deliverBatch(int slot) throws Exception {
+        final AMQP10MessageBatch batch = openBatches[slot];
+        openBatches[slot] = null;
+        if (handOffRing != null) {
+            handOff(batch);
+        } else if (workerPool == null) {
+            deliver(batch, channelId);
+        } else {
+            workerPool.execute(openBatches.length > 1 ? slot : workerPool.indexOf(null), new AMQP10WorkerPool.Task() {
+                @Override
+                public void run(String workerChannelId) throws Exception {
+                    deliver(batch, workerChannelId);
+                }
+            });
+        }
+    }
+
+    private void deliver(AMQP10MessageBatch batch, String channelId) throws Exception {
+        ByteBuffer buffer = batch.getBuffer();
+        if (buffer.hasRemaining()) {
+            long start = System.nanoTime();
+            byteListener.receive(buffer, channelId);
+            long nanos = System.nanoTime() - start;
+            metrics.processed(nanos, batch.size());
+            if (creditController != null)
+                creditController.processed(nanos, batch.size());
+        }
+        // settle only after the adapter has taken the whole batch
+        for (AMQPMessage message : batch.getMessages())
+            settle(message, true);
+    }
+
+    private void settle(AMQPMessage message, boolean accepted) throws Exception {
+        if (creditController != null)
+            creditController.done();
+        if (checkpoint != null)
+            checkpoint.record(message);
+        if (message.isSettled()) {
+            metrics.preSettled();
+            return;
+        }
+        if (accepted) {
+            message.accept();
+            metrics.accepted();
+        } else {
+            message.reject();
+            metrics.rejected();
+        }
+    }
+
+    private Object getOrderingKey(AMQPMessage message) {
+        if (AMQP10ConsumerInfo.ORDERING_KEY_PARTITION.equalsIgnoreCase(consumerInfo.getOrderingKey()))
+            return Util.asString(Util.getMessageAnnotation(message, "x-opt-partition-key"));
+        if (AMQP10ConsumerInfo.ORDERING_KEY_SESSION.equalsIgnoreCase(consumerInfo.getOrderingKey()))
+            return Util.getGroupId(message);
+        return null;
+    }
+
+    private boolean processed(AMQPMessage message, String channelId) {
+        ByteBuffer body;
+        try {
+            body = bodyExtractor.extract(message);
+        } catch (Exception e) {
+            LOGGER.warn("MESSAGE_DECODING_ERROR", e, e.getMessage());
+            metrics.received(0);
+            return false;
+        }
+        if (body != null && body.hasRemaining()) {
+            metrics.received(body.remaining());
+            long start = System.nanoTime();
+            byteListener.receive(body, channelId);
+            long nanos = System.nanoTime() - start;
+            metrics.processed(nanos, 1);
+            if (creditController != null)
+                creditController.processed(nanos, 1);
+        } else {
+            metrics.received(0);
         }
         return true;
     }
@@ -0,0 +1,151 @@
+package com.esri.geoevent.transport.amqp10;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sizes the link credit of one consumer from the rate the adapter processes its messages at, additive increase /
+ * multiplicative decrease. Once per second the controller compares the messages taken from the link with the messages
+ * it was done with, i.e. settled. When the backlog of messages taken but not done yet grew during the interval and is
+ * more than half the credit, or the hand-off queue had no room for more credit, the messages prefetched on the link
+ * only wait, so the credit is halved and the broker hands them to a consumer that has time for them. An adapter that
+ * is busy but keeps up does not lose credit. While the link used up half its credit without a growing backlog, the
+ * credit is raised by a step, so that a fast adapter does not wait for flow frames. Credit is topped up whenever half
+ * of it was used. The time spent in {@code ByteListener.receive()} is only measured for the metrics.
+ */
+public class AMQP10CreditController {
+    static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // the weight of the last interval in the rate and time estimates
+    private static final double SMOOTHING = 0.3;
+    private static final int INCREASE_STEPS = 20;
+    private final int minCredit;
+    private final int maxCredit;
+    private final int increase;
+    private final int parallelism;
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder processedCount = new LongAdder();
+    private final LongAdder doneCount = new LongAdder();
+    // only used by the receive thread
+    private long intervalStart = System.nanoTime();
+    private long received;
+    private boolean congested;
+    private volatile int credit;
+    private volatile long backlog;
+    private volatile double drainRate;
+    private volatile double serviceTime;
+    private volatile double utilization;
+
+    /**
+     * @param parallelism the number of threads the adapter is called on for this consumer
+     */
+    public AMQP10CreditController(int initialCredit, int minCredit, int maxCredit, int parallelism) {
+        this.minCredit = minCredit;
+        this.maxCredit = maxCredit;
+        this.increase = Math.max(1, (maxCredit - minCredit) / INCREASE_STEPS);
+        this.parallelism = Math.max(1, parallelism);
+        this.credit = Math.max(minCredit, Math.min(maxCredit, initialCredit));
+    }
+
+    /**
+     * @return the link credit to grant with the next replenishment
+     */
+    public int getCredit() {
+        return credit;
+    }
+
+    /**
+     * @return the credit already granted that is used up before it is topped up again
+     */
+    public int getReplenishThreshold(int grantedCredit) {
+        return grantedCredit / 2;
+    }
+
+    /**
+     * @return the messages taken from the link per second
+     */
+    public double getDrainRate() {
+        return drainRate;
+    }
+
+    /**
+     * @return the mean time in microseconds the adapter takes for a message
+     */
+    public double getServiceTime() {
+        return serviceTime;
+    }
+
+    /**
+     * @return the share of the time the adapter threads of this consumer were busy, 1.0 when they were never idle
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * Called by the receive thread for every message taken from the link.
+     */
+    public void received() {
+        received++;
+    }
+
+    /**
+     * Called by the receive thread when the credit was withheld because the hand-off queue was full.
+     */
+    public void congested() {
+        congested = true;
+    }
+
+    /**
+     * @return the messages taken from the link that were not settled yet at the end of the last interval
+     */
+    public long getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Called for every message taken from the link when it is settled, whether it was processed, filtered or spooled.
+     * May be called by any thread.
+     */
+    public void done() {
+        doneCount.increment();
+    }
+
+    /**
+     * Records the time the adapter took for {@code count} messages. May be called by any thread.
+     */
+    public void processed(long nanos, int count) {
+        busyNanos.add(nanos);
+        processedCount.add(count);
+    }
+
+    /**
+     * Ends the current interval if it is due and adjusts the credit. Called by the receive thread.
+     */
+    public void update(long now) {
+        long elapsed = now - intervalStart;
+        if (elapsed < INTERVAL_NANOS)
+            return;
+        long busy = busyNanos.sumThenReset();
+        long count = processedCount.sumThenReset();
+        double rate = received * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        double busyShare = Math.min(1.0, busy / ((double) elapsed * parallelism));
+        drainRate = smooth(drainRate, rate);
+        utilization = smooth(utilization, busyShare);
+        if (count > 0)
+            serviceTime = smooth(serviceTime, TimeUnit.NANOSECONDS.toMicros(busy) / (double) count);
+        int current = credit;
+        long previousBacklog = backlog;
+        backlog = Math.max(0, previousBacklog + received - doneCount.sumThenReset());
+        if (congested || (backlog > previousBacklog && backlog > current / 2))
+            credit = Math.max(minCredit, current / 2);
+        else if (received >= current / 2)
+            credit = Math.min(maxCredit, current + increase);
+        received = 0;
+        congested = false;
+        intervalStart = now;
+    }
+
+    private static double smooth(double estimate, double sample) {
+        return estimate + SMOOTHING * (sample - estimate);
+    }
+}
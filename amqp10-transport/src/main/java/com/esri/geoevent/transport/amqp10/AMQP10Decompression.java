@@ -0,0 +1,162 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.github.luben.zstd.ZstdInputStream;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Properties;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import net.jpountz.lz4.LZ4FrameInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decompresses message bodies before they are handed to the adapter. The codec is either taken from the
+ * {@code content-encoding} property of every message or forced for the input. Bodies are inflated in chunks into a
+ * per-thread buffer that grows up to the configured maximum size, so a compressed body is never held in memory twice
+ * and a malicious or broken message cannot exhaust the heap.
+ */
+public class AMQP10Decompression implements AMQP10BodyExtractor {
+    public static final String CODEC_CONTENT_ENCODING = "ContentEncoding";
+    public static final String CODEC_NONE = "None";
+    public static final String CODEC_GZIP = "Gzip";
+    public static final String CODEC_DEFLATE = "Deflate";
+    public static final String CODEC_ZSTD = "Zstd";
+    public static final String CODEC_LZ4 = "Lz4";
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private static final int CHUNK_SIZE = 8192;
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<>();
+    private final AMQP10BodyExtractor delegate;
+    private final Codec forcedCodec;
+    private final int maxDecompressedSize;
+
+    private AMQP10Decompression(AMQP10BodyExtractor delegate, Codec forcedCodec, int maxDecompressedSize) {
+        this.delegate = delegate;
+        this.forcedCodec = forcedCodec;
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+    /**
+     * @return the extractor, or the delegate itself if the codec is {@link #CODEC_NONE}
+     */
+    public static AMQP10BodyExtractor wrap(AMQP10BodyExtractor delegate, String codec, int maxDecompressedSize) {
+        if (CODEC_NONE.equalsIgnoreCase(codec))
+            return delegate;
+        Codec forced = CODEC_CONTENT_ENCODING.equalsIgnoreCase(codec) ? null : Codec.valueOf(codec.toUpperCase());
+        return new AMQP10Decompression(delegate, forced, maxDecompressedSize);
+    }
+
+    public static boolean isValidCodec(String codec) {
+        return CODEC_CONTENT_ENCODING.equalsIgnoreCase(codec) || CODEC_NONE.equalsIgnoreCase(codec) || CODEC_GZIP.equalsIgnoreCase(codec) || CODEC_DEFLATE.equalsIgnoreCase(codec) || CODEC_ZSTD.equalsIgnoreCase(codec) || CODEC_LZ4.equalsIgnoreCase(codec);
+    }
+
+    @Override
+    public ByteBuffer extract(AMQPMessage message) throws Exception {
+        ByteBuffer body = delegate.extract(message);
+        if (body == null || !body.hasRemaining())
+            return body;
+        Codec codec = forcedCodec != null ? forcedCodec : Codec.forContentEncoding(message.getProperties());
+        if (codec == null)
+            return body;
+        try (InputStream in = codec.open(asStream(body))) {
+            return inflate(in, body.remaining());
+        }
+    }
+
+    private ByteBuffer inflate(InputStream in, int compressedSize) throws IOException, AMQP10TransportException {
+        long estimate = Math.min((long) maxDecompressedSize, Math.max(CHUNK_SIZE, compressedSize * 4L));
+        ByteBuffer out = limited(AMQP10BufferPool.acquire(BUFFER, (int) estimate));
+        while (true) {
+            if (!out.hasRemaining()) {
+                if (out.limit() >= maxDecompressedSize) {
+                    // a single byte more tells a body of exactly the maximum size from a larger one
+                    if (in.read() < 0)
+                        break;
+                    throw new AMQP10TransportException(LOGGER.translate("MESSAGE_DECOMPRESSED_SIZE_EXCEEDED", maxDecompressedSize));
+                }
+                ByteBuffer larger = limited(AMQP10BufferPool.acquire(BUFFER, (int) Math.min((long) maxDecompressedSize, out.capacity() * 2L)));
+                out.flip();
+                larger.put(out);
+                out = larger;
+            }
+            int read = in.read(out.array(), out.arrayOffset() + out.position(), Math.min(out.remaining(), CHUNK_SIZE));
+            if (read < 0)
+                break;
+            out.position(out.position() + read);
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * Pooled buffers can be larger than requested, the limit keeps the body within the maximum size.
+     */
+    private ByteBuffer limited(ByteBuffer buffer) {
+        buffer.limit(Math.min(buffer.capacity(), maxDecompressedSize));
+        return buffer;
+    }
+
+    private static InputStream asStream(ByteBuffer body) {
+        if (body.hasArray())
+            return new ByteArrayInputStream(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private enum Codec {
+        GZIP {
+            @Override
+            InputStream open(InputStream in) throws IOException {
+                return new GZIPInputStream(in, CHUNK_SIZE);
+            }
+        },
+        DEFLATE {
+            @Override
+            InputStream open(InputStream in) {
+                return new InflaterInputStream(in);
+            }
+        },
+        ZSTD {
+            @Override
+            InputStream open(InputStream in) throws IOException {
+                return new ZstdInputStream(in);
+            }
+        },
+        LZ4 {
+            @Override
+            InputStream open(InputStream in) throws IOException {
+                return new LZ4FrameInputStream(in);
+            }
+        };
+
+        abstract InputStream open(InputStream in) throws IOException;
+
+        /**
+         * @return the codec named by the content-encoding of the message, or null if the body is not compressed or
+         * compressed with an unknown codec
+         */
+        static Codec forContentEncoding(Properties properties) {
+            if (properties == null || properties.getContentEncoding() == null)
+                return null;
+            String encoding = properties.getContentEncoding().getValue().trim().toLowerCase();
+            switch (encoding) {
+                case "gzip":
+                case "x-gzip":
+                    return GZIP;
+                case "deflate":
+                    return DEFLATE;
+                case "zstd":
+                    return ZSTD;
+                case "lz4":
+                    return LZ4;
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -28,15 +28,73 @@ import com.esri.ges.core.validation.Validatable;
 import com.esri.ges.core.validation.ValidationException;
 import com.esri.ges.framework.i18n.BundleLogger;
 import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.util.Converter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class AMQP10DestinationInfo implements Validatable {
     private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private static final Pattern RANGE = Pattern.compile("\\[(\\d+)-(\\d+)\\]");
+    private static final int MAX_RANGE = 1000;
     private final String type;
     private final String name;
+    private final int linkCredit;
+    private final int creditReplenishThreshold;
+    private final int weight;
+
+    public AMQP10DestinationInfo(String type, String name, String linkCredit, String creditReplenishThreshold) {
+        this(type, name, linkCredit, creditReplenishThreshold, 1);
+    }
 
-    public AMQP10DestinationInfo(String type, String name) {
+    public AMQP10DestinationInfo(String type, String name, String linkCredit, String creditReplenishThreshold, int weight) {
         this.type = type;
         this.name = name;
+        this.linkCredit = Converter.convertToInteger(linkCredit, 200);
+        this.creditReplenishThreshold = Converter.convertToInteger(creditReplenishThreshold, 0);
+        this.weight = weight;
+    }
+
+    /**
+     * Parses a comma separated list of destinations. Every entry may end with {@code =weight} to receive that many times
+     * as many messages per scheduling round as an entry without weight. A numeric range in brackets expands to one
+     * destination per number, e.g. {@code orders/Subscriptions/geo-[1-40]} or {@code audit=3}. A range that counts
+     * down or expands to more than {@value #MAX_RANGE} destinations is kept as written, so that {@link #validate()}
+     * rejects it.
+     */
+    public static List<AMQP10DestinationInfo> parse(String type, String names, String linkCredit, String creditReplenishThreshold) {
+        List<AMQP10DestinationInfo> destinations = new ArrayList<>();
+        if (names == null)
+            return destinations;
+        for (String entry : names.split(",")) {
+            String name = entry.trim();
+            if (name.isEmpty())
+                continue;
+            int weight = 1;
+            int separator = name.lastIndexOf('=');
+            if (separator >= 0) {
+                weight = Converter.convertToInteger(name.substring(separator + 1).trim(), 0);
+                name = name.substring(0, separator).trim();
+            }
+            Matcher range = RANGE.matcher(name);
+            if (range.find() && isValidRange(range)) {
+                int from = Integer.parseInt(range.group(1));
+                int to = Integer.parseInt(range.group(2));
+                for (int i = from; i <= to; i++)
+                    destinations.add(new AMQP10DestinationInfo(type, name.substring(0, range.start()) + i + name.substring(range.end()), linkCredit, creditReplenishThreshold, weight));
+            } else {
+                destinations.add(new AMQP10DestinationInfo(type, name, linkCredit, creditReplenishThreshold, weight));
+            }
+        }
+        return destinations;
+    }
+
+    private static boolean isValidRange(Matcher range) {
+        long from = Converter.convertToLong(range.group(1), -1L);
+        long to = Converter.convertToLong(range.group(2), -1L);
+        return from >= 0 && from <= to && to <= Integer.MAX_VALUE && to - from < MAX_RANGE;
     }
 
     public String getType() {
@@ -47,12 +105,39 @@ public class AMQP10DestinationInfo implements Validatable {
         return name;
     }
 
+    public int getLinkCredit() {
+        return linkCredit;
+    }
+
+    /**
+     * @return the number of outstanding credits below which the link credit is topped up again, or 0 to leave
+     * replenishment to the client library.
+     */
+    public int getCreditReplenishThreshold() {
+        return creditReplenishThreshold;
+    }
+
+    /**
+     * @return the share of a scheduling round this destination gets when an input receives from several destinations
+     */
+    public int getWeight() {
+        return weight;
+    }
+
     @Override
     public void validate() throws ValidationException {
-        if (!"Queue".equalsIgnoreCase(type) && !"Topic".equalsIgnoreCase(type))
+        if (!"Queue".equalsIgnoreCase(type) && !"Topic".equalsIgnoreCase(type) && !AMQP10EventHubInfo.DESTINATION_TYPE.equalsIgnoreCase(type))
             throw new ValidationException(LOGGER.translate("DESTINATION_TYPE_VALIDATE_ERROR"));
         if (name == null || name.isEmpty())
             throw new ValidationException(LOGGER.translate("DESTINATION_NAME_VALIDATE_ERROR"));
-
+        Matcher range = RANGE.matcher(name);
+        if (range.find())
+            throw new ValidationException(LOGGER.translate("DESTINATION_RANGE_VALIDATE_ERROR", range.group(), MAX_RANGE));
+        if (linkCredit <= 0)
+            throw new ValidationException(LOGGER.translate("DESTINATION_LINK_CREDIT_VALIDATE_ERROR"));
+        if (creditReplenishThreshold < 0 || creditReplenishThreshold >= linkCredit)
+            throw new ValidationException(LOGGER.translate("DESTINATION_CREDIT_REPLENISH_THRESHOLD_VALIDATE_ERROR"));
+        if (weight <= 0)
+            throw new ValidationException(LOGGER.translate("DESTINATION_WEIGHT_VALIDATE_ERROR"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.core.validation.Validatable;
+import com.esri.ges.core.validation.ValidationException;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.util.Converter;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AMQP10EventHubInfo implements Validatable {
+    public static final String DESTINATION_TYPE = "EventHub";
+    public static final String START_POSITION_EARLIEST = "Earliest";
+    public static final String START_POSITION_LATEST = "Latest";
+    public static final String CLUSTER_MEMBER_PROPERTY = "com.esri.geoevent.transport.amqp10.clusterMember";
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private final String consumerGroup;
+    private final int partitionCount;
+    private final String startPosition;
+    private final String checkpointDirectory;
+    private final boolean checkpointDirectoryConfigured;
+    private final int checkpointBatchSize;
+    private final int checkpointInterval;
+    private final List<String> clusterMembers = new ArrayList<>();
+
+    public AMQP10EventHubInfo(String consumerGroup, String partitionCount, String startPosition, String checkpointDirectory, String checkpointBatchSize, String checkpointInterval, String clusterMembers) {
+        this.consumerGroup = (consumerGroup == null || consumerGroup.trim().isEmpty()) ? "$Default" : consumerGroup.trim();
+        this.partitionCount = Converter.convertToInteger(partitionCount, 0);
+        this.startPosition = (startPosition == null || startPosition.isEmpty()) ? START_POSITION_LATEST : startPosition;
+        this.checkpointDirectoryConfigured = checkpointDirectory != null && !checkpointDirectory.trim().isEmpty();
+        this.checkpointDirectory = checkpointDirectoryConfigured ? checkpointDirectory.trim() : defaultCheckpointDirectory();
+        this.checkpointBatchSize = Converter.convertToInteger(checkpointBatchSize, 100);
+        this.checkpointInterval = Converter.convertToInteger(checkpointInterval, 5000);
+        if (clusterMembers != null) {
+            for (String member : clusterMembers.split(",")) {
+                if (!member.trim().isEmpty())
+                    this.clusterMembers.add(member.trim());
+            }
+        }
+    }
+
+    private static String defaultCheckpointDirectory() {
+        String data = System.getProperty("karaf.data");
+        return new File(data != null ? data : System.getProperty("java.io.tmpdir"), "amqp10-checkpoints").getPath();
+    }
+
+    public String getConsumerGroup() {
+        return consumerGroup;
+    }
+
+    /**
+     * @return the number of partitions of the event hub
+     */
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * @return the address of the receiver link of one partition
+     */
+    public String getPartitionAddress(String eventHubName, String partitionId) {
+        return eventHubName + "/ConsumerGroups/" + consumerGroup + "/Partitions/" + partitionId;
+    }
+
+    /**
+     * @return the offset filter used on partitions that have no checkpoint yet
+     */
+    public String getStartSelector() {
+        return START_POSITION_EARLIEST.equalsIgnoreCase(startPosition) ? AMQP10CheckpointStore.offsetSelector("-1") : AMQP10CheckpointStore.offsetSelector("@latest");
+    }
+
+    public String getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    /**
+     * @return true if the checkpoint directory was configured rather than defaulting to the local data directory
+     */
+    public boolean isCheckpointDirectoryConfigured() {
+        return checkpointDirectoryConfigured;
+    }
+
+    /**
+     * @return true if the partitions are split across a static list of cluster members
+     */
+    public boolean hasClusterMembers() {
+        return !clusterMembers.isEmpty();
+    }
+
+    /**
+     * @return the number of messages of a partition after which its checkpoint is written
+     */
+    public int getCheckpointBatchSize() {
+        return checkpointBatchSize;
+    }
+
+    /**
+     * @return the maximum time in milliseconds a received offset waits to be written
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Splits the partitions across the cluster members by rendezvous hashing: every partition goes to the member with the
+     * highest hash of member and partition id. All members compute the same split from the same member list, and a
+     * member that leaves the list only hands over its own partitions. Without a member list all partitions are owned.
+     */
+    public List<String> getOwnedPartitions(List<String> partitionIds) {
+        if (clusterMembers.isEmpty())
+            return partitionIds;
+        String localMember = getLocalMember();
+        List<String> owned = new ArrayList<>();
+        if (localMember == null) {
+            LOGGER.warn("EVENT_HUB_NOT_A_CLUSTER_MEMBER", clusterMembers);
+            return owned;
+        }
+        for (String partitionId : partitionIds) {
+            if (localMember.equals(owner(clusterMembers, partitionId)))
+                owned.add(partitionId);
+        }
+        return owned;
+    }
+
+    /**
+     * @return the member with the highest rendezvous hash of member and unit of work, or null without members
+     */
+    static String owner(List<String> members, String unit) {
+        String owner = null;
+        int highest = 0;
+        for (String member : members) {
+            int score = mix((member.toLowerCase() + '/' + unit).hashCode());
+            if (owner == null || score > highest) {
+                owner = member;
+                highest = score;
+            }
+        }
+        return owner;
+    }
+
+    /**
+     * @return the entry of the member list that names this machine, or null if this machine is not listed
+     */
+    private String getLocalMember() {
+        List<String> names = new ArrayList<>();
+        String configured = System.getProperty(CLUSTER_MEMBER_PROPERTY);
+        if (configured != null)
+            names.add(configured);
+        try {
+            InetAddress localHost = InetAddress.getLocalHost();
+            names.add(localHost.getHostName());
+            names.add(localHost.getCanonicalHostName());
+        } catch (Exception ignored) {
+        }
+        for (String member : clusterMembers) {
+            for (String name : names) {
+                if (member.equalsIgnoreCase(name))
+                    return member;
+            }
+        }
+        return null;
+    }
+
+    private static int mix(int h) {
+        // the finalizer of MurmurHash3, so that similar member names do not get similar scores
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (partitionCount <= 0)
+            throw new ValidationException(LOGGER.translate("EVENT_HUB_PARTITION_COUNT_VALIDATE_ERROR"));
+        if (!START_POSITION_EARLIEST.equalsIgnoreCase(startPosition) && !START_POSITION_LATEST.equalsIgnoreCase(startPosition))
+            throw new ValidationException(LOGGER.translate("EVENT_HUB_START_POSITION_VALIDATE_ERROR"));
+        if (checkpointBatchSize <= 0 || checkpointInterval <= 0)
+            throw new ValidationException(LOGGER.translate("EVENT_HUB_CHECKPOINT_VALIDATE_ERROR"));
+    }
+}
@@ -0,0 +1,175 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Keeps every lease in a small file of a directory per group. Changes are made under an exclusive lock on a lock file
+ * of the group and a lease file is replaced atomically, so the store is safe for several inputs and several GeoEvent
+ * Server instances on one machine. Members on different machines can share the store on a network file system that
+ * supports file locks; for anything else a lease store backed by a database or a coordination service should be
+ * plugged in instead.
+ */
+public class AMQP10FileLeaseStore implements AMQP10LeaseStore {
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private static final String LEASE_SUFFIX = ".lease";
+    private static final String LOCK_FILE = "group.lock";
+    private static final String NAME = "name";
+    private static final String OWNER = "owner";
+    private static final String EXPIRES_AT = "expiresAt";
+    private static final int MAX_FILE_NAME = 100;
+    // a file lock is held by the whole JVM, so the inputs of this JVM take turns first
+    private static final Object JVM_LOCK = new Object();
+    private final Path directory;
+
+    public AMQP10FileLeaseStore(AMQP10ClusterInfo clusterInfo) {
+        directory = Paths.get(clusterInfo.getLeaseDirectory());
+    }
+
+    @Override
+    public List<AMQP10Lease> list(String group) throws AMQP10TransportException {
+        Path groupDirectory = directory.resolve(fileName(group));
+        List<AMQP10Lease> leases = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (JVM_LOCK) {
+            try (GroupLock ignored = lock(groupDirectory); DirectoryStream<Path> files = Files.newDirectoryStream(groupDirectory, "*" + LEASE_SUFFIX)) {
+                for (Path file : files) {
+                    AMQP10Lease lease = read(file);
+                    if (lease != null && !lease.isExpired(now))
+                        leases.add(lease);
+                }
+            } catch (IOException e) {
+                throw new AMQP10TransportException(LOGGER.translate("LEASE_STORE_ERROR", groupDirectory, e.getMessage()), e);
+            }
+        }
+        return leases;
+    }
+
+    @Override
+    public boolean acquire(String group, String name, String owner, long durationMillis) throws AMQP10TransportException {
+        Path groupDirectory = directory.resolve(fileName(group));
+        Path file = groupDirectory.resolve(fileName(name) + LEASE_SUFFIX);
+        long now = System.currentTimeMillis();
+        synchronized (JVM_LOCK) {
+            try (GroupLock ignored = lock(groupDirectory)) {
+                AMQP10Lease lease = read(file);
+                if (lease != null && !lease.isExpired(now) && !lease.getOwner().equals(owner))
+                    return false;
+                write(file, new AMQP10Lease(name, owner, now + durationMillis));
+                return true;
+            } catch (IOException e) {
+                throw new AMQP10TransportException(LOGGER.translate("LEASE_STORE_ERROR", file, e.getMessage()), e);
+            }
+        }
+    }
+
+    @Override
+    public void release(String group, String name, String owner) throws AMQP10TransportException {
+        Path groupDirectory = directory.resolve(fileName(group));
+        Path file = groupDirectory.resolve(fileName(name) + LEASE_SUFFIX);
+        synchronized (JVM_LOCK) {
+            try (GroupLock ignored = lock(groupDirectory)) {
+                AMQP10Lease lease = read(file);
+                if (lease != null && lease.getOwner().equals(owner))
+                    Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new AMQP10TransportException(LOGGER.translate("LEASE_STORE_ERROR", file, e.getMessage()), e);
+            }
+        }
+    }
+
+    private static GroupLock lock(Path groupDirectory) throws IOException {
+        Files.createDirectories(groupDirectory);
+        FileChannel channel = FileChannel.open(groupDirectory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            return new GroupLock(channel, channel.lock());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the lease in the file, or null if there is none. A file that cannot be parsed counts as no lease, so that
+     * a member that crashed while writing does not block the lease forever.
+     */
+    private static AMQP10Lease read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        String name = properties.getProperty(NAME);
+        String owner = properties.getProperty(OWNER);
+        try {
+            long expiresAt = Long.parseLong(properties.getProperty(EXPIRES_AT, ""));
+            return name != null && owner != null ? new AMQP10Lease(name, owner, expiresAt) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void write(Path file, AMQP10Lease lease) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(NAME, lease.getName());
+        properties.setProperty(OWNER, lease.getOwner());
+        properties.setProperty(EXPIRES_AT, Long.toString(lease.getExpiresAt()));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, null);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return a file name for a group or lease name. A name that had to be changed or shortened keeps its hash code, so
+     * that two names do not end up in the same file.
+     */
+    private static String fileName(String name) {
+        String fileName = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (fileName.length() > MAX_FILE_NAME)
+            fileName = fileName.substring(0, MAX_FILE_NAME);
+        if (!fileName.equals(name))
+            fileName += '-' + Integer.toHexString(name.hashCode());
+        return fileName;
+    }
+
+    /**
+     * The lock of a group, which closes the channel of the lock file when it is released.
+     */
+    private static class GroupLock implements AutoCloseable {
+        private final FileChannel channel;
+        private final FileLock lock;
+
+        GroupLock(FileChannel channel, FileLock lock) {
+            this.channel = channel;
+            this.lock = lock;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                lock.release();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
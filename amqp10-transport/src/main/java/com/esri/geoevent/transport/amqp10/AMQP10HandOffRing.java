@@ -0,0 +1,124 @@
+package com.esri.geoevent.transport.amqp10;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded single-producer single-consumer ring buffer that hands received messages from the receive thread of a
+ * consumer to its delivery task. Like the Disruptor it preallocates its slots, publishes with ordered writes instead
+ * of locks, and each side caches the other side's sequence so the shared sequences are only read when the cached value
+ * says the ring is full or empty. The delivery task goes idle when the ring is empty and the producer wakes it up with
+ * the next offer; the tail is published with a volatile write, so that the producer and a consumer about to go idle
+ * cannot both miss the other.
+ */
+final class AMQP10HandOffRing<E> {
+    private final Object[] slots;
+    private final int mask;
+    private final Sequence head = new Sequence();
+    private final Sequence tail = new Sequence();
+    private long cachedHead;
+    private long cachedTail;
+    private final Runnable wakeUp;
+    private volatile boolean consumerIdle;
+
+    /**
+     * @param capacity the minimum capacity, rounded up to a power of two
+     * @param wakeUp   called by the producer when it offers an element to an idle consumer
+     */
+    AMQP10HandOffRing(int capacity, Runnable wakeUp) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new Object[size];
+        mask = size - 1;
+        this.wakeUp = wakeUp;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    int size() {
+        return (int) Math.max(0L, tail.get() - head.get());
+    }
+
+    int remainingCapacity() {
+        return slots.length - size();
+    }
+
+    /**
+     * Called by the producer only.
+     *
+     * @return false if the ring is full
+     */
+    boolean offer(E element) {
+        long t = tail.get();
+        if (t - cachedHead >= slots.length) {
+            cachedHead = head.get();
+            if (t - cachedHead >= slots.length)
+                return false;
+        }
+        slots[(int) t & mask] = element;
+        // a full fence: with an ordered write the read of consumerIdle could pass it, and a consumer that went idle and
+        // read the old tail in the meantime would not be woken up
+        tail.set(t + 1);
+        if (consumerIdle) {
+            consumerIdle = false;
+            wakeUp.run();
+        }
+        return true;
+    }
+
+    /**
+     * Called by the consumer only.
+     *
+     * @return the next element, or null if the ring is empty
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long h = head.get();
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+            if (h >= cachedTail)
+                return null;
+        }
+        int index = (int) h & mask;
+        E element = (E) slots[index];
+        slots[index] = null;
+        head.lazySet(h + 1);
+        return element;
+    }
+
+    /**
+     * Called by the consumer only, after {@link #poll()} returned null. Asks the producer to wake the consumer up with
+     * the next offer.
+     *
+     * @return false if an element arrived in the meantime, in which case the consumer polls again instead of going idle
+     */
+    boolean idle() {
+        consumerIdle = true;
+        // check again, the producer may have published before it saw the idle consumer
+        if (tail.get() > head.get()) {
+            consumerIdle = false;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drops all elements. Only safe when neither the producer nor the consumer runs.
+     */
+    void clear() {
+        Arrays.fill(slots, null);
+        head.set(tail.get());
+        cachedHead = head.get();
+        cachedTail = tail.get();
+        consumerIdle = false;
+    }
+
+    /**
+     * A sequence followed by padding, so that head and tail do not share a cache line.
+     */
+    @SuppressWarnings("unused")
+    private static final class Sequence extends AtomicLong {
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
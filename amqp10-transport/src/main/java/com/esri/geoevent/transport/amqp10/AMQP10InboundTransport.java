@@ -31,13 +31,49 @@ import com.esri.ges.framework.i18n.BundleLogger;
 import com.esri.ges.framework.i18n.BundleLoggerFactory;
 import com.esri.ges.transport.InboundTransportBase;
 import com.esri.ges.transport.TransportDefinition;
+import com.swiftmq.amqp.v100.client.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class AMQP10InboundTransport extends InboundTransportBase {
     private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private static final int TIMEOUT = 5000;
     private AMQP10ConnectionInfo connectionInfo;
-    private AMQP10DestinationInfo destinationInfo;
+    private List<AMQP10DestinationInfo> destinationInfos = new ArrayList<>();
+    private AMQP10ConsumerInfo consumerInfo;
+    private AMQP10EventHubInfo eventHubInfo;
+    private AMQP10CheckpointStore checkpointStore;
+    private AMQP10ClusterInfo clusterInfo;
+    private AMQP10LeaseCoordinator leaseCoordinator;
+    private AMQP10SpoolInfo spoolInfo;
+    private AMQP10Spool spool;
+    private final List<AMQP10DestinationInfo> linkDestinationInfos = new ArrayList<>();
     private AMQP10ConnectionService connectionService;
-    private AMQP10ConsumerService consumerService;
+    private Session session;
+    private final List<AMQP10ConsumerService> consumerServices = new ArrayList<>();
+    private AMQP10WorkerPool workerPool;
+    private AMQP10LinkScheduler linkScheduler;
+    private final List<AMQP10InputMetrics> metrics = new ArrayList<>();
+    // incremented on every start and stop, so that a startup that was overtaken by a stop gives up
+    private long startGeneration;
+    private long startNanos;
+    // false while a start waits for the shared connection to come back
+    private boolean attached;
+    private final AMQP10ConnectionService.Listener reconnectListener = new AMQP10ConnectionService.Listener() {
+        @Override
+        public void reconnected(AMQP10ConnectionService connectionService) {
+            // the links are restarted on another thread, so that a stop holding the transport does not wait for the
+            // reconnect task while the reconnect task waits for the transport
+            AMQP10SharedExecutors.startup().execute(new Runnable() {
+                @Override
+                public void run() {
+                    relink();
+                }
+            });
+        }
+    };
 
     public AMQP10InboundTransport(TransportDefinition definition) throws ComponentException {
         super(definition);
@@ -85,38 +121,314 @@ public class AMQP10InboundTransport extends InboundTransportBase {
         String authenticationRequired = getProperty("authenticationRequired").getValueAsString();
         String saslAuthenticationType = getProperty("saslAuthenticationType").getValueAsString();
         String username = getProperty("username").getValueAsString();
+        String sessionIncomingWindow = getProperty("sessionIncomingWindow").getValueAsString();
+        String sessionOutgoingWindow = getProperty("sessionOutgoingWindow").getValueAsString();
+        String reconnectDelay = getProperty("reconnectDelay").getValueAsString();
+        String maxReconnectDelay = getProperty("maxReconnectDelay").getValueAsString();
+        String circuitBreakerThreshold = getProperty("circuitBreakerThreshold").getValueAsString();
+        String circuitBreakerOpenTime = getProperty("circuitBreakerOpenTime").getValueAsString();
 
-        connectionInfo = new AMQP10ConnectionInfo(hostname, port, tls, authenticationRequired, saslAuthenticationType, username, password);
+        connectionInfo = new AMQP10ConnectionInfo(hostname, port, tls, authenticationRequired, saslAuthenticationType, username, password, sessionIncomingWindow, sessionOutgoingWindow, reconnectDelay, maxReconnectDelay, circuitBreakerThreshold, circuitBreakerOpenTime);
 
         String destinationType = getProperty("destinationType").getValueAsString();
         String destinationName = getProperty("destinationName").getValueAsString();
+        String linkCredit = getProperty("linkCredit").getValueAsString();
+        String creditReplenishThreshold = getProperty("creditReplenishThreshold").getValueAsString();
+
+        destinationInfos = AMQP10DestinationInfo.parse(destinationType, destinationName, linkCredit, creditReplenishThreshold);
+
+        if (AMQP10EventHubInfo.DESTINATION_TYPE.equalsIgnoreCase(destinationType)) {
+            String consumerGroup = getProperty("eventHubConsumerGroup").getValueAsString();
+            String partitionCount = getProperty("eventHubPartitionCount").getValueAsString();
+            String startPosition = getProperty("eventHubStartPosition").getValueAsString();
+            String checkpointDirectory = getProperty("checkpointDirectory").getValueAsString();
+            String checkpointBatchSize = getProperty("checkpointBatchSize").getValueAsString();
+            String checkpointInterval = getProperty("checkpointInterval").getValueAsString();
+            String clusterMembers = getProperty("clusterMembers").getValueAsString();
+
+            eventHubInfo = new AMQP10EventHubInfo(consumerGroup, partitionCount, startPosition, checkpointDirectory, checkpointBatchSize, checkpointInterval, clusterMembers);
+        } else {
+            eventHubInfo = null;
+        }
 
-        destinationInfo = new AMQP10DestinationInfo(destinationType, destinationName);
+        String receiveMode = getProperty("receiveMode").getValueAsString();
+        String consumerCount = getProperty("consumerCount").getValueAsString();
+        String workerThreads = getProperty("workerThreads").getValueAsString();
+        String orderingKey = getProperty("orderingKey").getValueAsString();
+        String settlementMode = getProperty("settlementMode").getValueAsString();
+        String batchSize = getProperty("batchSize").getValueAsString();
+        String batchLinger = getProperty("batchLinger").getValueAsString();
+        String batchFraming = getProperty("batchFraming").getValueAsString();
+        String handOffQueueSize = getProperty("handOffQueueSize").getValueAsString();
+        String messageSelector = getProperty("messageSelector").getValueAsString();
+        String selectorPushDown = getProperty("selectorPushDown").getValueAsString();
+        String projectedProperties = getProperty("projectedProperties").getValueAsString();
+        String projectionFormat = getProperty("projectionFormat").getValueAsString();
+        String compression = getProperty("compression").getValueAsString();
+        String maxDecompressedSize = getProperty("maxDecompressedSize").getValueAsString();
+        String creditMode = getProperty("creditMode").getValueAsString();
+        String minLinkCredit = getProperty("minLinkCredit").getValueAsString();
+        String maxLinkCredit = getProperty("maxLinkCredit").getValueAsString();
+
+        consumerInfo = new AMQP10ConsumerInfo(receiveMode, consumerCount, workerThreads, orderingKey, settlementMode, batchSize, batchLinger, batchFraming, handOffQueueSize, messageSelector, selectorPushDown, projectedProperties, projectionFormat, compression, maxDecompressedSize, creditMode, minLinkCredit, maxLinkCredit);
+
+        String spool = getProperty("spool").getValueAsString();
+        String spoolDirectory = getProperty("spoolDirectory").getValueAsString();
+        String spoolSegmentSize = getProperty("spoolSegmentSize").getValueAsString();
+        String spoolMaxSegments = getProperty("spoolMaxSegments").getValueAsString();
+        String spoolSyncInterval = getProperty("spoolSyncInterval").getValueAsString();
+
+        spoolInfo = new AMQP10SpoolInfo(spool, spoolDirectory, spoolSegmentSize, spoolMaxSegments, spoolSyncInterval);
+
+        String clusterMode = getProperty("clusterMode").getValueAsString();
+        String leaseDirectory = getProperty("leaseDirectory").getValueAsString();
+        String leaseDuration = getProperty("leaseDuration").getValueAsString();
+
+        clusterInfo = new AMQP10ClusterInfo(clusterMode, leaseDirectory, leaseDuration);
     }
 
     @Override
     public void validate() throws ValidationException {
         super.validate();
         connectionInfo.validate();
-        destinationInfo.validate();
+        if (destinationInfos.isEmpty())
+            throw new ValidationException(LOGGER.translate("DESTINATION_NAME_VALIDATE_ERROR"));
+        for (AMQP10DestinationInfo destinationInfo : destinationInfos)
+            destinationInfo.validate();
+        consumerInfo.validate();
+        if (eventHubInfo != null) {
+            if (destinationInfos.size() != 1)
+                throw new ValidationException(LOGGER.translate("EVENT_HUB_NAME_VALIDATE_ERROR"));
+            eventHubInfo.validate();
+        }
+        if (spoolInfo.isEnabled()) {
+            spoolInfo.validate();
+            // the spool reader is the only thread that hands messages to the adapter
+            if (consumerInfo.getWorkerThreads() > 0 || consumerInfo.isHandOff() || consumerInfo.isBatchDelivery() || consumerInfo.isPreSettled())
+                throw new ValidationException(LOGGER.translate("SPOOL_COMBINATION_VALIDATE_ERROR"));
+        }
+        clusterInfo.validate();
+        if (eventHubInfo != null && clusterInfo.isLeased()) {
+            // the leases split the partitions, a static member list would split them a second time
+            if (eventHubInfo.hasClusterMembers())
+                throw new ValidationException(LOGGER.translate("CLUSTER_MEMBERS_VALIDATE_ERROR"));
+            // without a lease directory the checkpoints stay where they are configured, which must be shared
+            if (clusterInfo.getLeaseDirectory() == null && !eventHubInfo.isCheckpointDirectoryConfigured())
+                throw new ValidationException(LOGGER.translate("CLUSTER_CHECKPOINT_DIRECTORY_VALIDATE_ERROR"));
+        }
     }
 
+    /**
+     * Moves to STARTING and leaves the handshakes to the shared startup pool, so that GeoEvent Server does not wait for
+     * one input after the other. The input moves to STARTED once its links are attached.
+     */
     private synchronized void doStart() {
         doStop();
         setRunningState(RunningState.STARTING);
+        final long generation = ++startGeneration;
+        startNanos = System.nanoTime();
+        attached = false;
+        AMQP10SharedExecutors.startup().execute(new Runnable() {
+            @Override
+            public void run() {
+                completeStart(generation);
+            }
+        });
+    }
+
+    private void completeStart(long generation) {
+        AMQP10ConnectionService service;
         try {
-            int timeout = 5000;
-            if (connectionService == null)
-                connectionService = new AMQP10ConnectionService(connectionInfo, timeout);
-            connectionService.start();
-            if (consumerService == null)
-                consumerService = new AMQP10ConsumerService(
-                        connectionService.getConnection(),
-                        connectionService.getSession(),
-                        destinationInfo,
-                        byteListener,
-                        timeout);
-            consumerService.start();
+            // the connection handshake runs without holding the transport, so that a stop does not have to wait for it
+            service = AMQP10ConnectionRegistry.acquire(connectionInfo, TIMEOUT);
+        } catch (AMQP10TransportException | RuntimeException e) {
+            synchronized (this) {
+                if (generation != startGeneration)
+                    return;
+                LOGGER.error("TRANSPORT_START_ERROR", e, e.getMessage());
+                doStop(e.getMessage());
+                setRunningState(RunningState.ERROR);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (generation != startGeneration) {
+                AMQP10ConnectionRegistry.release(service);
+                return;
+            }
+            connectionService = service;
+            connectionService.addListener(reconnectListener);
+            if (!connectionService.isRunning()) {
+                // the shared connection is down; its monitor reconnects with back-off and the links are attached then
+                LOGGER.info("TRANSPORT_WAITING_FOR_CONNECTION", connectionInfo.getHostname());
+                return;
+            }
+            attach(generation);
+        }
+    }
+
+    /**
+     * Attaches the links of a start once the connection is up.
+     */
+    private void attach(long generation) {
+        try {
+            attached = true;
+            resolveLinkDestinations(generation);
+            registerMetrics();
+            if (spoolInfo.isEnabled()) {
+                List<String> destinationNames = new ArrayList<>();
+                for (AMQP10DestinationInfo destinationInfo : destinationInfos)
+                    destinationNames.add(destinationInfo.getName());
+                spool = new AMQP10Spool(spoolInfo, connectionInfo.getHostname(), destinationNames, metrics);
+                spool.start(byteListener);
+                for (AMQP10InputMetrics destinationMetrics : metrics)
+                    destinationMetrics.setSpool(spool);
+            }
+            startLinks();
+            long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            for (AMQP10InputMetrics destinationMetrics : metrics)
+                destinationMetrics.started(startupMillis);
+            LOGGER.info("TRANSPORT_STARTED", connectionInfo.getHostname(), consumerServices.size(), startupMillis);
+            setRunningState(RunningState.STARTED);
+        } catch (AMQP10TransportException | RuntimeException e) {
+            LOGGER.error("TRANSPORT_START_ERROR", e, e.getMessage());
+            doStop(e.getMessage());
+            setRunningState(RunningState.ERROR);
+        }
+    }
+
+    /**
+     * Determines the addresses the receiver links are opened on. An event hub gets one link per partition this cluster
+     * member owns, every other destination one link per consumer. With leases the partitions of an event hub or the
+     * subscriptions of a topic are split across the cluster members, see {@link AMQP10LeaseCoordinator}.
+     */
+    private void resolveLinkDestinations(final long generation) throws AMQP10TransportException {
+        List<String> partitionIds = null;
+        if (eventHubInfo != null) {
+            AMQP10DestinationInfo eventHub = destinationInfos.get(0);
+            // Event Hubs numbers the partitions from 0
+            partitionIds = new ArrayList<>();
+            for (int i = 0; i < eventHubInfo.getPartitionCount(); i++)
+                partitionIds.add(Integer.toString(i));
+            checkpointStore = new AMQP10CheckpointStore(eventHubInfo, clusterInfo.getCheckpointDirectory(eventHubInfo), connectionInfo.getHostname(), eventHub.getName());
+            checkpointStore.start();
+        }
+        if (!clusterInfo.isLeased()) {
+            applyOwnership(eventHubInfo != null ? eventHubInfo.getOwnedPartitions(partitionIds) : null, 1, partitionIds != null ? partitionIds.size() : 0);
+            return;
+        }
+        // queues are shared by all members, which compete for their messages
+        List<String> units = new ArrayList<>();
+        if (partitionIds != null) {
+            units.addAll(partitionIds);
+        } else if ("Topic".equalsIgnoreCase(destinationInfos.get(0).getType())) {
+            for (AMQP10DestinationInfo destinationInfo : destinationInfos)
+                units.add(destinationInfo.getName());
+        }
+        final int unitCount = units.size();
+        leaseCoordinator = new AMQP10LeaseCoordinator(clusterInfo.createLeaseStore(), leaseGroup(), clusterInfo, new AMQP10LeaseCoordinator.Listener() {
+            @Override
+            public void ownershipChanged() {
+                // the links are restarted on another thread, so that a stop does not wait for the coordinator
+                AMQP10SharedExecutors.startup().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        rebalance(generation, unitCount);
+                    }
+                });
+            }
+        });
+        List<String> owned = leaseCoordinator.start(units);
+        applyOwnership(owned, leaseCoordinator.getMembers(), unitCount);
+    }
+
+    /**
+     * @return the name the cluster members that run this input share their leases under
+     */
+    private String leaseGroup() {
+        StringBuilder group = new StringBuilder(connectionInfo.getHostname());
+        for (AMQP10DestinationInfo destinationInfo : destinationInfos)
+            group.append('/').append(destinationInfo.getName());
+        if (eventHubInfo != null)
+            group.append('/').append(eventHubInfo.getConsumerGroup());
+        return group.toString();
+    }
+
+    /**
+     * Builds the link destinations from the owned units. The link credit of a queue that all members receive from is
+     * split across them, so that the members together hold no more messages than one member would.
+     *
+     * @param owned the owned partitions or topic subscriptions, or null for all destinations
+     */
+    private void applyOwnership(List<String> owned, int members, int unitCount) {
+        linkDestinationInfos.clear();
+        if (eventHubInfo != null) {
+            AMQP10DestinationInfo eventHub = destinationInfos.get(0);
+            LOGGER.info("EVENT_HUB_PARTITIONS_OWNED", eventHub.getName(), owned, unitCount);
+            String linkCredit = Integer.toString(eventHub.getLinkCredit());
+            String creditReplenishThreshold = Integer.toString(eventHub.getCreditReplenishThreshold());
+            for (String partitionId : owned)
+                linkDestinationInfos.add(new AMQP10DestinationInfo(eventHub.getType(), eventHubInfo.getPartitionAddress(eventHub.getName(), partitionId), linkCredit, creditReplenishThreshold));
+            return;
+        }
+        for (AMQP10DestinationInfo destinationInfo : destinationInfos) {
+            if (owned != null && unitCount > 0) {
+                if (owned.contains(destinationInfo.getName()))
+                    linkDestinationInfos.add(destinationInfo);
+            } else if (members > 1) {
+                int linkCredit = (destinationInfo.getLinkCredit() + members - 1) / members;
+                int creditReplenishThreshold = (int) ((long) destinationInfo.getCreditReplenishThreshold() * linkCredit / destinationInfo.getLinkCredit());
+                linkDestinationInfos.add(new AMQP10DestinationInfo(destinationInfo.getType(), destinationInfo.getName(), Integer.toString(linkCredit), Integer.toString(creditReplenishThreshold), destinationInfo.getWeight()));
+            } else {
+                linkDestinationInfos.add(destinationInfo);
+            }
+        }
+    }
+
+    private void registerMetrics() {
+        // one MBean per destination, so that a lagging destination can be told apart
+        for (AMQP10DestinationInfo destinationInfo : linkDestinationInfos) {
+            AMQP10InputMetrics destinationMetrics = new AMQP10InputMetrics(connectionInfo, destinationInfo);
+            destinationMetrics.setConnectionService(connectionService);
+            destinationMetrics.register();
+            if (spool != null)
+                destinationMetrics.setSpool(spool);
+            metrics.add(destinationMetrics);
+        }
+        if (spool != null)
+            spool.setMetrics(metrics);
+    }
+
+    private void unregisterMetrics() {
+        for (AMQP10InputMetrics destinationMetrics : metrics)
+            destinationMetrics.unregister();
+        metrics.clear();
+    }
+
+    /**
+     * Called after a cluster member joined or left. Restarts the links on the units this member owns now, with the
+     * link credit sized for the new number of members. Takes the latest ownership, so rebalances that run out of order
+     * end in the same state.
+     */
+    private synchronized void rebalance(long generation, int unitCount) {
+        if (generation != startGeneration || leaseCoordinator == null)
+            return;
+        List<String> owned = leaseCoordinator.getOwnedUnits();
+        int members = leaseCoordinator.getMembers();
+        LOGGER.info("CLUSTER_REBALANCED", connectionInfo.getHostname(), members, owned);
+        stopLinks();
+        unregisterMetrics();
+        if (checkpointStore != null) {
+            // the checkpoints are kept next to the leases, so a partition taken over from another member resumes from the
+            // checkpoint that member wrote last; the store is created again so that offsets cached before are dropped
+            checkpointStore.stop();
+            checkpointStore = new AMQP10CheckpointStore(eventHubInfo, clusterInfo.getCheckpointDirectory(eventHubInfo), connectionInfo.getHostname(), destinationInfos.get(0).getName());
+            checkpointStore.start();
+        }
+        applyOwnership(owned, members, unitCount);
+        registerMetrics();
+        try {
+            startLinks();
         } catch (AMQP10TransportException e) {
             LOGGER.error("TRANSPORT_START_ERROR", e, e.getMessage());
             doStop(e.getMessage());
@@ -124,22 +436,132 @@ public class AMQP10InboundTransport extends InboundTransportBase {
         }
     }
 
+    /**
+     * Called on the startup pool after the shared connection was re-established. The session and the links of the lost
+     * connection are gone, so they are created again on the new connection. A start that waited for the connection
+     * attaches its links now.
+     */
+    private synchronized void relink() {
+        if (connectionService == null)
+            return;
+        if (!attached) {
+            attach(startGeneration);
+            return;
+        }
+        stopLinks();
+        try {
+            startLinks();
+        } catch (AMQP10TransportException e) {
+            LOGGER.error("TRANSPORT_START_ERROR", e, e.getMessage());
+            doStop(e.getMessage());
+            setRunningState(RunningState.ERROR);
+        }
+    }
+
+    private void startLinks() throws AMQP10TransportException {
+        session = connectionService.createSession(connectionInfo.getSessionIncomingWindow(), connectionInfo.getSessionOutgoingWindow());
+        if (workerPool == null && consumerInfo.getWorkerThreads() > 0) {
+            int capacity = 0;
+            for (AMQP10DestinationInfo destinationInfo : linkDestinationInfos)
+                capacity += consumerInfo.isAdaptiveCredit() ? Math.max(destinationInfo.getLinkCredit(), consumerInfo.getMaxLinkCredit()) : destinationInfo.getLinkCredit();
+            workerPool = new AMQP10WorkerPool(consumerInfo.getWorkerThreads(), capacity);
+        }
+        // several destinations share one receive thread that takes turns between their links, while the partitions of an
+        // event hub are received in parallel
+        if (linkDestinationInfos.size() > 1 && eventHubInfo == null)
+            linkScheduler = new AMQP10LinkScheduler(connectionInfo.getHostname(), TIMEOUT);
+        // a second reader on a partition would receive every message twice
+        int consumerCount = eventHubInfo != null ? 1 : consumerInfo.getConsumerCount();
+        for (int d = 0; d < linkDestinationInfos.size(); d++) {
+            AMQP10DestinationInfo destinationInfo = linkDestinationInfos.get(d);
+            for (int i = 0; i < consumerCount; i++) {
+                AMQP10ConsumerService consumerService = new AMQP10ConsumerService(
+                        connectionService.getConnection(),
+                        session,
+                        destinationInfo,
+                        consumerInfo,
+                        byteListener,
+                        workerPool,
+                        metrics.get(d),
+                        TIMEOUT);
+                consumerServices.add(consumerService);
+                if (checkpointStore != null) {
+                    String address = destinationInfo.getName();
+                    consumerService.setCheckpoint(checkpointStore.getPartition(address.substring(address.lastIndexOf('/') + 1)));
+                }
+                if (spool != null)
+                    consumerService.setSpool(spool, d);
+                if (linkScheduler != null) {
+                    consumerService.startScheduled();
+                    linkScheduler.add(consumerService, destinationInfo);
+                } else {
+                    consumerService.start();
+                }
+            }
+        }
+        if (linkScheduler != null)
+            linkScheduler.start();
+    }
+
+    private void stopLinks() {
+        if (linkScheduler != null)
+            try {
+                linkScheduler.stop();
+            } finally {
+                linkScheduler = null;
+            }
+        // drain the workers first, they settle messages on the consumers' links
+        if (workerPool != null)
+            try {
+                workerPool.shutdown(TIMEOUT);
+            } finally {
+                workerPool = null;
+            }
+        for (AMQP10ConsumerService consumerService : consumerServices)
+            consumerService.stop();
+        consumerServices.clear();
+        if (connectionService != null)
+            try {
+                connectionService.closeSession(session);
+            } finally {
+                session = null;
+            }
+    }
+
     private synchronized void doStop() {
         doStop(null);
     }
 
     private synchronized void doStop(String reason) {
+        startGeneration++;
         setRunningState(RunningState.STOPPING);
         setErrorMessage(reason);
-        if (consumerService != null)
+        stopLinks();
+        // after the links, so that no other member receives from a unit before this one has stopped
+        if (leaseCoordinator != null)
+            try {
+                leaseCoordinator.stop();
+            } finally {
+                leaseCoordinator = null;
+            }
+        // after the links, so that the consumers settle what they appended
+        if (spool != null)
+            try {
+                spool.stop();
+            } finally {
+                spool = null;
+            }
+        if (checkpointStore != null)
             try {
-                consumerService.stop();
+                checkpointStore.stop();
             } finally {
-                consumerService = null;
+                checkpointStore = null;
             }
+        unregisterMetrics();
         if (connectionService != null)
             try {
-                connectionService.stop();
+                connectionService.removeListener(reconnectListener);
+                AMQP10ConnectionRegistry.release(connectionService);
             } finally {
                 connectionService = null;
             }
@@ -45,11 +45,28 @@ public class AMQP10InboundTransportDefinition extends TransportDefinitionBase {
       propertyDefinitions.put("hostname", new PropertyDefinition("hostname", PropertyType.String, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_HOSTNAME_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_HOSTNAME_DESC}", true, false));
       propertyDefinitions.put("port", new PropertyDefinition("port", PropertyType.Integer, 5671, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_PORT_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_PORT_DESC}", true, false));
       propertyDefinitions.put("tls", new PropertyDefinition("tls", PropertyType.Boolean, true, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_TLS_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_TLS_DESC}", true, false));
-      List<LabeledValue> allowedDestinationTypeValues = new ArrayList<>(2);
+      List<LabeledValue> allowedDestinationTypeValues = new ArrayList<>(3);
       allowedDestinationTypeValues.add(new LabeledValue("Queue", "Queue"));
       allowedDestinationTypeValues.add(new LabeledValue("Topic", "Topic"));
+      allowedDestinationTypeValues.add(new LabeledValue("Event Hub", AMQP10EventHubInfo.DESTINATION_TYPE));
       propertyDefinitions.put("destinationType", new PropertyDefinition("destinationType", PropertyType.String, "Queue", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_DESTINATION_TYPE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_DESTINATION_TYPE_DESC}", true, false, allowedDestinationTypeValues));
       propertyDefinitions.put("destinationName", new PropertyDefinition("destinationName", PropertyType.String, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_DESTINATION_NAME_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_DESTINATION_NAME_DESC}", true, false));
+      propertyDefinitions.put("eventHubConsumerGroup", new PropertyDefinition("eventHubConsumerGroup", PropertyType.String, "$Default", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_EVENT_HUB_CONSUMER_GROUP_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_EVENT_HUB_CONSUMER_GROUP_DESC}", "destinationType=EventHub", false, false));
+      propertyDefinitions.put("eventHubPartitionCount", new PropertyDefinition("eventHubPartitionCount", PropertyType.Integer, 0, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_EVENT_HUB_PARTITION_COUNT_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_EVENT_HUB_PARTITION_COUNT_DESC}", "destinationType=EventHub", false, false));
+      List<LabeledValue> allowedStartPositionValues = new ArrayList<>(2);
+      allowedStartPositionValues.add(new LabeledValue("Earliest", AMQP10EventHubInfo.START_POSITION_EARLIEST));
+      allowedStartPositionValues.add(new LabeledValue("Latest", AMQP10EventHubInfo.START_POSITION_LATEST));
+      propertyDefinitions.put("eventHubStartPosition", new PropertyDefinition("eventHubStartPosition", PropertyType.String, AMQP10EventHubInfo.START_POSITION_LATEST, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_EVENT_HUB_START_POSITION_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_EVENT_HUB_START_POSITION_DESC}", "destinationType=EventHub", false, false, allowedStartPositionValues));
+      propertyDefinitions.put("checkpointDirectory", new PropertyDefinition("checkpointDirectory", PropertyType.String, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CHECKPOINT_DIRECTORY_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CHECKPOINT_DIRECTORY_DESC}", "destinationType=EventHub", false, false));
+      propertyDefinitions.put("checkpointBatchSize", new PropertyDefinition("checkpointBatchSize", PropertyType.Integer, 100, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CHECKPOINT_BATCH_SIZE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CHECKPOINT_BATCH_SIZE_DESC}", "destinationType=EventHub", false, false));
+      propertyDefinitions.put("checkpointInterval", new PropertyDefinition("checkpointInterval", PropertyType.Integer, 5000, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CHECKPOINT_INTERVAL_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CHECKPOINT_INTERVAL_DESC}", "destinationType=EventHub", false, false));
+      propertyDefinitions.put("clusterMembers", new PropertyDefinition("clusterMembers", PropertyType.String, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CLUSTER_MEMBERS_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CLUSTER_MEMBERS_DESC}", "destinationType=EventHub", false, false));
+      List<LabeledValue> allowedClusterModeValues = new ArrayList<>(2);
+      allowedClusterModeValues.add(new LabeledValue("Static", AMQP10ClusterInfo.MODE_STATIC));
+      allowedClusterModeValues.add(new LabeledValue("Leases", AMQP10ClusterInfo.MODE_LEASES));
+      propertyDefinitions.put("clusterMode", new PropertyDefinition("clusterMode", PropertyType.String, AMQP10ClusterInfo.MODE_STATIC, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CLUSTER_MODE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CLUSTER_MODE_DESC}", false, false, allowedClusterModeValues));
+      propertyDefinitions.put("leaseDirectory", new PropertyDefinition("leaseDirectory", PropertyType.String, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_LEASE_DIRECTORY_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_LEASE_DIRECTORY_DESC}", "clusterMode=Leases", false, false));
+      propertyDefinitions.put("leaseDuration", new PropertyDefinition("leaseDuration", PropertyType.Integer, 30000, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_LEASE_DURATION_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_LEASE_DURATION_DESC}", "clusterMode=Leases", false, false));
       propertyDefinitions.put("authenticationRequired", new PropertyDefinition("authenticationRequired", PropertyType.Boolean, false, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_AUTHENTICATION_REQUIRED_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_AUTHENTICATION_REQUIRED_DESC}", true, false));
       List<LabeledValue> allowedSASLAuthenticationTypeValues = new ArrayList<>(2);
       allowedSASLAuthenticationTypeValues.add(new LabeledValue("ANONYMOUS", "ANONYMOUS"));
@@ -57,6 +74,63 @@ public class AMQP10InboundTransportDefinition extends TransportDefinitionBase {
       propertyDefinitions.put("saslAuthenticationType", new PropertyDefinition("saslAuthenticationType", PropertyType.String, "ANONYMOUS", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SASL_AUTHENTICATION_TYPE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SASL_AUTHENTICATION_TYPE_DESC}", "authenticationRequired=true",false, false, allowedSASLAuthenticationTypeValues));
       propertyDefinitions.put("username", new PropertyDefinition("username", PropertyType.String, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_USERNAME_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_USERNAME_DESC}", "saslAuthenticationType=PLAIN", false, false));
       propertyDefinitions.put("password", new PropertyDefinition("password", PropertyType.Password, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_PASSWORD_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_PASSWORD_DESC}", "saslAuthenticationType=PLAIN",false, false));
+      List<LabeledValue> allowedReceiveModeValues = new ArrayList<>(2);
+      allowedReceiveModeValues.add(new LabeledValue("Push", AMQP10ConsumerInfo.RECEIVE_MODE_PUSH));
+      allowedReceiveModeValues.add(new LabeledValue("Poll", AMQP10ConsumerInfo.RECEIVE_MODE_POLL));
+      propertyDefinitions.put("receiveMode", new PropertyDefinition("receiveMode", PropertyType.String, AMQP10ConsumerInfo.RECEIVE_MODE_PUSH, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_RECEIVE_MODE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_RECEIVE_MODE_DESC}", false, false, allowedReceiveModeValues));
+      propertyDefinitions.put("linkCredit", new PropertyDefinition("linkCredit", PropertyType.Integer, 200, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_LINK_CREDIT_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_LINK_CREDIT_DESC}", false, false));
+      propertyDefinitions.put("creditReplenishThreshold", new PropertyDefinition("creditReplenishThreshold", PropertyType.Integer, 0, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CREDIT_REPLENISH_THRESHOLD_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CREDIT_REPLENISH_THRESHOLD_DESC}", false, false));
+      List<LabeledValue> allowedCreditModeValues = new ArrayList<>(2);
+      allowedCreditModeValues.add(new LabeledValue("Fixed", AMQP10ConsumerInfo.CREDIT_MODE_FIXED));
+      allowedCreditModeValues.add(new LabeledValue("Adaptive", AMQP10ConsumerInfo.CREDIT_MODE_ADAPTIVE));
+      propertyDefinitions.put("creditMode", new PropertyDefinition("creditMode", PropertyType.String, AMQP10ConsumerInfo.CREDIT_MODE_FIXED, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CREDIT_MODE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CREDIT_MODE_DESC}", false, false, allowedCreditModeValues));
+      propertyDefinitions.put("minLinkCredit", new PropertyDefinition("minLinkCredit", PropertyType.Integer, 10, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MIN_LINK_CREDIT_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MIN_LINK_CREDIT_DESC}", "creditMode=Adaptive", false, false));
+      propertyDefinitions.put("maxLinkCredit", new PropertyDefinition("maxLinkCredit", PropertyType.Integer, 1000, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MAX_LINK_CREDIT_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MAX_LINK_CREDIT_DESC}", "creditMode=Adaptive", false, false));
+      propertyDefinitions.put("sessionIncomingWindow", new PropertyDefinition("sessionIncomingWindow", PropertyType.Integer, 100, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SESSION_INCOMING_WINDOW_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SESSION_INCOMING_WINDOW_DESC}", false, false));
+      propertyDefinitions.put("sessionOutgoingWindow", new PropertyDefinition("sessionOutgoingWindow", PropertyType.Integer, 100, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SESSION_OUTGOING_WINDOW_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SESSION_OUTGOING_WINDOW_DESC}", false, false));
+      propertyDefinitions.put("reconnectDelay", new PropertyDefinition("reconnectDelay", PropertyType.Integer, 1000, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_RECONNECT_DELAY_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_RECONNECT_DELAY_DESC}", false, false));
+      propertyDefinitions.put("maxReconnectDelay", new PropertyDefinition("maxReconnectDelay", PropertyType.Integer, 300000, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MAX_RECONNECT_DELAY_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MAX_RECONNECT_DELAY_DESC}", false, false));
+      propertyDefinitions.put("circuitBreakerThreshold", new PropertyDefinition("circuitBreakerThreshold", PropertyType.Integer, 10, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CIRCUIT_BREAKER_THRESHOLD_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CIRCUIT_BREAKER_THRESHOLD_DESC}", false, false));
+      propertyDefinitions.put("circuitBreakerOpenTime", new PropertyDefinition("circuitBreakerOpenTime", PropertyType.Integer, 60000, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CIRCUIT_BREAKER_OPEN_TIME_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CIRCUIT_BREAKER_OPEN_TIME_DESC}", false, false));
+      propertyDefinitions.put("consumerCount", new PropertyDefinition("consumerCount", PropertyType.Integer, 1, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CONSUMER_COUNT_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_CONSUMER_COUNT_DESC}", false, false));
+      propertyDefinitions.put("workerThreads", new PropertyDefinition("workerThreads", PropertyType.Integer, 0, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_WORKER_THREADS_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_WORKER_THREADS_DESC}", false, false));
+      List<LabeledValue> allowedOrderingKeyValues = new ArrayList<>(3);
+      allowedOrderingKeyValues.add(new LabeledValue("None", AMQP10ConsumerInfo.ORDERING_KEY_NONE));
+      allowedOrderingKeyValues.add(new LabeledValue("Partition Key", AMQP10ConsumerInfo.ORDERING_KEY_PARTITION));
+      allowedOrderingKeyValues.add(new LabeledValue("Session Id", AMQP10ConsumerInfo.ORDERING_KEY_SESSION));
+      propertyDefinitions.put("orderingKey", new PropertyDefinition("orderingKey", PropertyType.String, AMQP10ConsumerInfo.ORDERING_KEY_NONE, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_ORDERING_KEY_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_ORDERING_KEY_DESC}", false, false, allowedOrderingKeyValues));
+      List<LabeledValue> allowedSettlementModeValues = new ArrayList<>(2);
+      allowedSettlementModeValues.add(new LabeledValue("Individual", AMQP10ConsumerInfo.SETTLEMENT_MODE_INDIVIDUAL));
+      allowedSettlementModeValues.add(new LabeledValue("Pre-Settled", AMQP10ConsumerInfo.SETTLEMENT_MODE_PRE_SETTLED));
+      propertyDefinitions.put("settlementMode", new PropertyDefinition("settlementMode", PropertyType.String, AMQP10ConsumerInfo.SETTLEMENT_MODE_INDIVIDUAL, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SETTLEMENT_MODE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SETTLEMENT_MODE_DESC}", false, false, allowedSettlementModeValues));
+      propertyDefinitions.put("batchSize", new PropertyDefinition("batchSize", PropertyType.Integer, 1, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_BATCH_SIZE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_BATCH_SIZE_DESC}", false, false));
+      propertyDefinitions.put("batchLinger", new PropertyDefinition("batchLinger", PropertyType.Integer, 1000, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_BATCH_LINGER_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_BATCH_LINGER_DESC}", false, false));
+      List<LabeledValue> allowedBatchFramingValues = new ArrayList<>(2);
+      allowedBatchFramingValues.add(new LabeledValue("Newline", AMQP10ConsumerInfo.BATCH_FRAMING_NEWLINE));
+      allowedBatchFramingValues.add(new LabeledValue("Length Prefixed", AMQP10ConsumerInfo.BATCH_FRAMING_LENGTH_PREFIXED));
+      propertyDefinitions.put("batchFraming", new PropertyDefinition("batchFraming", PropertyType.String, AMQP10ConsumerInfo.BATCH_FRAMING_NEWLINE, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_BATCH_FRAMING_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_BATCH_FRAMING_DESC}", false, false, allowedBatchFramingValues));
+      propertyDefinitions.put("handOffQueueSize", new PropertyDefinition("handOffQueueSize", PropertyType.Integer, 0, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_HAND_OFF_QUEUE_SIZE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_HAND_OFF_QUEUE_SIZE_DESC}", false, false));
+      propertyDefinitions.put("messageSelector", new PropertyDefinition("messageSelector", PropertyType.String, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MESSAGE_SELECTOR_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MESSAGE_SELECTOR_DESC}", false, false));
+      propertyDefinitions.put("selectorPushDown", new PropertyDefinition("selectorPushDown", PropertyType.Boolean, true, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SELECTOR_PUSH_DOWN_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SELECTOR_PUSH_DOWN_DESC}", false, false));
+      propertyDefinitions.put("projectedProperties", new PropertyDefinition("projectedProperties", PropertyType.String, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_PROJECTED_PROPERTIES_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_PROJECTED_PROPERTIES_DESC}", false, false));
+      List<LabeledValue> allowedProjectionFormatValues = new ArrayList<>(2);
+      allowedProjectionFormatValues.add(new LabeledValue("Text", AMQP10PropertyProjection.FORMAT_TEXT));
+      allowedProjectionFormatValues.add(new LabeledValue("JSON", AMQP10PropertyProjection.FORMAT_JSON));
+      propertyDefinitions.put("projectionFormat", new PropertyDefinition("projectionFormat", PropertyType.String, AMQP10PropertyProjection.FORMAT_TEXT, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_PROJECTION_FORMAT_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_PROJECTION_FORMAT_DESC}", false, false, allowedProjectionFormatValues));
+      List<LabeledValue> allowedCompressionValues = new ArrayList<>(6);
+      allowedCompressionValues.add(new LabeledValue("Content Encoding", AMQP10Decompression.CODEC_CONTENT_ENCODING));
+      allowedCompressionValues.add(new LabeledValue("None", AMQP10Decompression.CODEC_NONE));
+      allowedCompressionValues.add(new LabeledValue("Gzip", AMQP10Decompression.CODEC_GZIP));
+      allowedCompressionValues.add(new LabeledValue("Deflate", AMQP10Decompression.CODEC_DEFLATE));
+      allowedCompressionValues.add(new LabeledValue("Zstd", AMQP10Decompression.CODEC_ZSTD));
+      allowedCompressionValues.add(new LabeledValue("LZ4", AMQP10Decompression.CODEC_LZ4));
+      propertyDefinitions.put("compression", new PropertyDefinition("compression", PropertyType.String, AMQP10Decompression.CODEC_CONTENT_ENCODING, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_COMPRESSION_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_COMPRESSION_DESC}", false, false, allowedCompressionValues));
+      propertyDefinitions.put("maxDecompressedSize", new PropertyDefinition("maxDecompressedSize", PropertyType.Integer, 16777216, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MAX_DECOMPRESSED_SIZE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_MAX_DECOMPRESSED_SIZE_DESC}", false, false));
+      propertyDefinitions.put("spool", new PropertyDefinition("spool", PropertyType.Boolean, false, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_DESC}", false, false));
+      propertyDefinitions.put("spoolDirectory", new PropertyDefinition("spoolDirectory", PropertyType.String, null, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_DIRECTORY_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_DIRECTORY_DESC}", "spool=true", false, false));
+      propertyDefinitions.put("spoolSegmentSize", new PropertyDefinition("spoolSegmentSize", PropertyType.Integer, 67108864, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_SEGMENT_SIZE_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_SEGMENT_SIZE_DESC}", "spool=true", false, false));
+      propertyDefinitions.put("spoolMaxSegments", new PropertyDefinition("spoolMaxSegments", PropertyType.Integer, 16, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_MAX_SEGMENTS_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_MAX_SEGMENTS_DESC}", "spool=true", false, false));
+      propertyDefinitions.put("spoolSyncInterval", new PropertyDefinition("spoolSyncInterval", PropertyType.Integer, 100, "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_SYNC_INTERVAL_LBL}", "${com.esri.geoevent.transport.amqp10-transport.TRANSPORT_IN_SPOOL_SYNC_INTERVAL_DESC}", "spool=true", false, false));
     } catch (PropertyException error) {
       String errorMsg = LOGGER.translate("IN_INIT_ERROR", error.getMessage());
       LOGGER.error(errorMsg, error);
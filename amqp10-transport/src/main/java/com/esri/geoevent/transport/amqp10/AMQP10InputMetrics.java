@@ -0,0 +1,363 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the runtime metrics of one input and exposes them as an MBean. The receive threads of all consumers and the
+ * workers record into striped counters and into HdrHistogram recorders, so the hot path takes no lock. Histograms are
+ * only folded together when the MBean is read.
+ */
+public class AMQP10InputMetrics implements AMQP10InputMetricsMBean {
+    public static final String DOMAIN = "com.esri.geoevent.transport.amqp10";
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private final String hostname;
+    private final String destination;
+    private volatile boolean creditTracked;
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder messagesAccepted = new LongAdder();
+    private final LongAdder messagesRejected = new LongAdder();
+    private final LongAdder messagesPreSettled = new LongAdder();
+    private final LongAdder messagesFiltered = new LongAdder();
+    private final LongAdder creditGranted = new LongAdder();
+    private final LongAdder creditWithheld = new LongAdder();
+    private final List<AMQP10HandOffRing<?>> handOffRings = new CopyOnWriteArrayList<>();
+    private final List<AMQP10CreditController> creditControllers = new CopyOnWriteArrayList<>();
+    private final Recorder processingTimeRecorder = new Recorder(3);
+    private final Recorder drainBatchSizeRecorder = new Recorder(3);
+    private final Histogram processingTime = new Histogram(3);
+    private final Histogram drainBatchSize = new Histogram(3);
+    private Histogram processingTimeInterval;
+    private Histogram drainBatchSizeInterval;
+    private final Rate messageRate = new Rate();
+    private final Rate byteRate = new Rate();
+    private volatile AMQP10ConnectionService connectionService;
+    private volatile AMQP10Spool spool;
+    private volatile long startupTime = -1;
+    private ObjectName objectName;
+
+    public AMQP10InputMetrics(AMQP10ConnectionInfo connectionInfo, AMQP10DestinationInfo destinationInfo) {
+        hostname = connectionInfo.getHostname();
+        destination = destinationInfo.getName();
+        creditTracked = destinationInfo.getCreditReplenishThreshold() > 0;
+    }
+
+    public void setConnectionService(AMQP10ConnectionService connectionService) {
+        this.connectionService = connectionService;
+    }
+
+    /**
+     * Records the time in milliseconds from the start of the input until its links were attached.
+     */
+    public void started(long millis) {
+        startupTime = millis;
+    }
+
+    public void setSpool(AMQP10Spool spool) {
+        this.spool = spool;
+    }
+
+    public void received(int bytes) {
+        messagesReceived.increment();
+        bytesReceived.add(bytes);
+    }
+
+    public void accepted() {
+        messagesAccepted.increment();
+    }
+
+    public void rejected() {
+        messagesRejected.increment();
+    }
+
+    public void preSettled() {
+        messagesPreSettled.increment();
+    }
+
+    public void filtered() {
+        messagesFiltered.increment();
+    }
+
+    public void creditGranted(int credit) {
+        creditGranted.add(credit);
+    }
+
+    public void creditWithheld() {
+        creditWithheld.increment();
+    }
+
+    void addHandOffRing(AMQP10HandOffRing<?> ring) {
+        handOffRings.add(ring);
+    }
+
+    void removeHandOffRing(AMQP10HandOffRing<?> ring) {
+        handOffRings.remove(ring);
+    }
+
+    void addCreditController(AMQP10CreditController controller) {
+        // adaptive credit is always replenished by the transport
+        creditTracked = true;
+        creditControllers.add(controller);
+    }
+
+    void removeCreditController(AMQP10CreditController controller) {
+        creditControllers.remove(controller);
+    }
+
+    /**
+     * Records the time the adapter took for {@code count} messages handed over together.
+     */
+    public void processed(long nanos, int count) {
+        processingTimeRecorder.recordValueWithCount(TimeUnit.NANOSECONDS.toMicros(nanos) / Math.max(1, count), count);
+    }
+
+    public void drained(int count) {
+        if (count > 0)
+            drainBatchSizeRecorder.recordValue(count);
+    }
+
+    public synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(DOMAIN + ":type=Input,host=" + ObjectName.quote(hostname) + ",destination=" + ObjectName.quote(destination) + ",id=" + Integer.toHexString(System.identityHashCode(this)));
+            server.registerMBean(this, objectName);
+        } catch (Exception e) {
+            objectName = null;
+            LOGGER.warn("METRICS_REGISTER_ERROR", e, destination, e.getMessage());
+        }
+    }
+
+    public synchronized void unregister() {
+        if (objectName == null)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception ignored) {
+        } finally {
+            objectName = null;
+        }
+    }
+
+    @Override
+    public String getHostname() {
+        return hostname;
+    }
+
+    @Override
+    public String getDestination() {
+        return destination;
+    }
+
+    @Override
+    public long getMessagesReceived() {
+        return messagesReceived.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public double getMessagesPerSecond() {
+        return messageRate.update(messagesReceived.sum());
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return byteRate.update(bytesReceived.sum());
+    }
+
+    @Override
+    public long getMessagesAccepted() {
+        return messagesAccepted.sum();
+    }
+
+    @Override
+    public long getMessagesRejected() {
+        return messagesRejected.sum();
+    }
+
+    @Override
+    public long getMessagesPreSettled() {
+        return messagesPreSettled.sum();
+    }
+
+    @Override
+    public long getMessagesFiltered() {
+        return messagesFiltered.sum();
+    }
+
+    @Override
+    public long getUnsettledDeliveries() {
+        return Math.max(0L, messagesReceived.sum() - messagesAccepted.sum() - messagesRejected.sum() - messagesPreSettled.sum());
+    }
+
+    @Override
+    public long getOutstandingCredit() {
+        return creditTracked ? Math.max(0L, creditGranted.sum() - messagesReceived.sum()) : -1L;
+    }
+
+    @Override
+    public long getCreditWithheld() {
+        return creditWithheld.sum();
+    }
+
+    @Override
+    public int getHandOffQueueSize() {
+        int size = 0;
+        for (AMQP10HandOffRing<?> ring : handOffRings)
+            size += ring.size();
+        return size;
+    }
+
+    @Override
+    public int getHandOffQueueCapacity() {
+        int capacity = 0;
+        for (AMQP10HandOffRing<?> ring : handOffRings)
+            capacity += ring.capacity();
+        return capacity;
+    }
+
+    @Override
+    public long getLinkCredit() {
+        if (creditControllers.isEmpty())
+            return -1L;
+        long credit = 0;
+        for (AMQP10CreditController controller : creditControllers)
+            credit += controller.getCredit();
+        return credit;
+    }
+
+    @Override
+    public double getDrainRate() {
+        double rate = 0;
+        for (AMQP10CreditController controller : creditControllers)
+            rate += controller.getDrainRate();
+        return rate;
+    }
+
+    @Override
+    public double getServiceTimeMean() {
+        if (creditControllers.isEmpty())
+            return 0;
+        double serviceTime = 0;
+        for (AMQP10CreditController controller : creditControllers)
+            serviceTime += controller.getServiceTime();
+        return serviceTime / creditControllers.size();
+    }
+
+    @Override
+    public double getAdapterUtilization() {
+        double utilization = 0;
+        for (AMQP10CreditController controller : creditControllers)
+            utilization = Math.max(utilization, controller.getUtilization());
+        return utilization;
+    }
+
+    @Override
+    public long getSpoolBacklog() {
+        AMQP10Spool current = spool;
+        return current != null ? current.getBacklog() : 0;
+    }
+
+    @Override
+    public long getStartupTime() {
+        return startupTime;
+    }
+
+    @Override
+    public long getReconnects() {
+        AMQP10ConnectionService service = connectionService;
+        return service != null ? service.getReconnectCount() : 0L;
+    }
+
+    @Override
+    public long getFailedReconnects() {
+        AMQP10ConnectionService service = connectionService;
+        return service != null ? service.getFailedReconnectCount() : 0L;
+    }
+
+    @Override
+    public synchronized double getProcessingTimeMean() {
+        return processingTime().getMean();
+    }
+
+    @Override
+    public synchronized long getProcessingTimeP50() {
+        return processingTime().getValueAtPercentile(50.0);
+    }
+
+    @Override
+    public synchronized long getProcessingTimeP99() {
+        return processingTime().getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public synchronized long getProcessingTimeP999() {
+        return processingTime().getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public synchronized long getProcessingTimeMax() {
+        return processingTime().getMaxValue();
+    }
+
+    @Override
+    public synchronized double getDrainBatchSizeMean() {
+        return drainBatchSize().getMean();
+    }
+
+    @Override
+    public synchronized long getDrainBatchSizeMax() {
+        return drainBatchSize().getMaxValue();
+    }
+
+    @Override
+    public synchronized void resetHistograms() {
+        processingTime();
+        drainBatchSize();
+        processingTime.reset();
+        drainBatchSize.reset();
+    }
+
+    private Histogram processingTime() {
+        processingTimeInterval = processingTimeRecorder.getIntervalHistogram(processingTimeInterval);
+        processingTime.add(processingTimeInterval);
+        return processingTime;
+    }
+
+    private Histogram drainBatchSize() {
+        drainBatchSizeInterval = drainBatchSizeRecorder.getIntervalHistogram(drainBatchSizeInterval);
+        drainBatchSize.add(drainBatchSizeInterval);
+        return drainBatchSize;
+    }
+
+    /**
+     * Turns a growing total into a rate per second since the previous call.
+     */
+    private static class Rate {
+        private long lastTotal;
+        private long lastNanos = System.nanoTime();
+
+        synchronized double update(long total) {
+            long now = System.nanoTime();
+            double seconds = (now - lastNanos) / 1e9;
+            double rate = seconds > 0 ? (total - lastTotal) / seconds : 0.0;
+            lastTotal = total;
+            lastNanos = now;
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.esri.geoevent.transport.amqp10;
+
+/**
+ * JMX view of the runtime metrics of one AMQP 1.0 input. Times are in microseconds, rates are averaged over the time
+ * since the previous read of the same rate.
+ */
+public interface AMQP10InputMetricsMBean {
+    String getHostname();
+
+    String getDestination();
+
+    long getMessagesReceived();
+
+    long getBytesReceived();
+
+    double getMessagesPerSecond();
+
+    double getBytesPerSecond();
+
+    long getMessagesAccepted();
+
+    long getMessagesRejected();
+
+    long getMessagesPreSettled();
+
+    /**
+     * @return messages that did not match the message selector and were settled without being processed
+     */
+    long getMessagesFiltered();
+
+    /**
+     * @return messages received but not settled with the broker yet, including messages waiting in a batch
+     */
+    long getUnsettledDeliveries();
+
+    /**
+     * @return the link credit the broker may still use, or -1 if the SwiftMQ client replenishes the credit itself
+     */
+    long getOutstandingCredit();
+
+    /**
+     * @return how often the credit was not replenished because the hand-off queue was full
+     */
+    long getCreditWithheld();
+
+    /**
+     * @return the messages and batches waiting in the hand-off queues of all consumers
+     */
+    int getHandOffQueueSize();
+
+    int getHandOffQueueCapacity();
+
+    /**
+     * @return the link credit adaptive credit grants the consumers of the destination, or -1 with fixed credit
+     */
+    long getLinkCredit();
+
+    /**
+     * @return the messages per second the consumers with adaptive credit take from their links, smoothed over the last
+     * seconds
+     */
+    double getDrainRate();
+
+    /**
+     * @return the smoothed time the adapter takes for a message, as measured by adaptive credit
+     */
+    double getServiceTimeMean();
+
+    /**
+     * @return the highest share of the time the adapter threads of a consumer with adaptive credit were busy, from 0.0
+     * to 1.0
+     */
+    double getAdapterUtilization();
+
+    /**
+     * @return the messages in the spool of the input that were not handed to the adapter yet
+     */
+    long getSpoolBacklog();
+
+    /**
+     * @return the milliseconds the input took from its start until its links were attached, or -1 while it is starting
+     */
+    long getStartupTime();
+
+    long getReconnects();
+
+    long getFailedReconnects();
+
+    double getProcessingTimeMean();
+
+    long getProcessingTimeP50();
+
+    long getProcessingTimeP99();
+
+    long getProcessingTimeP999();
+
+    long getProcessingTimeMax();
+
+    double getDrainBatchSizeMean();
+
+    long getDrainBatchSizeMax();
+
+    void resetHistograms();
+}
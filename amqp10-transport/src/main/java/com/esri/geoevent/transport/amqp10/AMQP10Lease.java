@@ -0,0 +1,36 @@
+package com.esri.geoevent.transport.amqp10;
+
+/**
+ * A lease of an {@link AMQP10LeaseStore}. Expiry times are wall clock times, so the clocks of the cluster members must
+ * not drift apart by more than a small part of the lease duration.
+ */
+public class AMQP10Lease {
+    private final String name;
+    private final String owner;
+    private final long expiresAt;
+
+    public AMQP10Lease(String name, String owner, long expiresAt) {
+        this.name = name;
+        this.owner = owner;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch the lease expires at
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
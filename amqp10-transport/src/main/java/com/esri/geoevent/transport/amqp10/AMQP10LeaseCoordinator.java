@@ -0,0 +1,163 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the units of work of an input, the partitions of an event hub or the subscriptions of a topic, across the
+ * cluster members that run the input. Every member renews a membership lease and the leases of its units every renew
+ * interval. The members that hold a membership lease split the units by rendezvous hashing, so a member that joins
+ * takes over a share of the units and the units of a member that leaves or stops renewing go to the others once their
+ * leases expire. A unit that moves to another member is released one renewal after its links were told to stop, so
+ * the two members do not receive from it at the same time.
+ */
+public class AMQP10LeaseCoordinator implements AMQP10SerialTask.Step {
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private static final String MEMBER_PREFIX = "member:";
+    private static final String UNIT_PREFIX = "unit:";
+    private final AMQP10LeaseStore store;
+    private final String group;
+    private final String nodeId;
+    private final AMQP10ClusterInfo clusterInfo;
+    private final Listener listener;
+    private final List<String> units = new ArrayList<>();
+    private Set<String> owned = new LinkedHashSet<>();
+    private final Set<String> releasing = new LinkedHashSet<>();
+    private int members;
+    private long renewedAt;
+    private boolean stopped = true;
+    private AMQP10SerialTask task;
+
+    /**
+     * Notified on the coordinator task when the owned units or the number of cluster members changed.
+     */
+    public interface Listener {
+        void ownershipChanged();
+    }
+
+    public AMQP10LeaseCoordinator(AMQP10LeaseStore store, String group, AMQP10ClusterInfo clusterInfo, Listener listener) {
+        this.store = store;
+        this.group = group;
+        this.nodeId = clusterInfo.getNodeId();
+        this.clusterInfo = clusterInfo;
+        this.listener = listener;
+    }
+
+    /**
+     * Joins the cluster and takes the units that are free. Units that other members still hold are taken over in later
+     * renewals.
+     *
+     * @return the units this member owns
+     */
+    public synchronized List<String> start(List<String> units) throws AMQP10TransportException {
+        this.units.clear();
+        this.units.addAll(units);
+        stopped = false;
+        rebalance();
+        task = new AMQP10SerialTask(this, AMQP10SharedExecutors.monitor());
+        task.schedule(TimeUnit.MILLISECONDS.toNanos(clusterInfo.getRenewInterval()));
+        return new ArrayList<>(owned);
+    }
+
+    /**
+     * @return the units this member owns since the last renewal
+     */
+    public synchronized List<String> getOwnedUnits() {
+        return new ArrayList<>(owned);
+    }
+
+    /**
+     * @return the number of cluster members seen in the last renewal, including this member
+     */
+    public synchronized int getMembers() {
+        return members;
+    }
+
+    /**
+     * Leaves the cluster and releases all leases, so that the other members take over without waiting for them to
+     * expire.
+     */
+    public void stop() {
+        AMQP10SerialTask current;
+        synchronized (this) {
+            stopped = true;
+            current = task;
+            task = null;
+        }
+        if (current != null)
+            current.cancel(clusterInfo.getRenewInterval());
+        synchronized (this) {
+            releasing.addAll(owned);
+            owned.clear();
+            try {
+                for (String unit : releasing)
+                    store.release(group, UNIT_PREFIX + unit, nodeId);
+                store.release(group, MEMBER_PREFIX + nodeId, nodeId);
+            } catch (AMQP10TransportException e) {
+                LOGGER.warn("LEASE_RENEW_ERROR", e, group, e.getMessage());
+            } finally {
+                releasing.clear();
+            }
+        }
+    }
+
+    @Override
+    public long run() {
+        boolean changed;
+        synchronized (this) {
+            if (stopped)
+                return AMQP10SerialTask.ON_WAKE_UP;
+            Set<String> previous = owned;
+            int previousMembers = members;
+            try {
+                rebalance();
+            } catch (AMQP10TransportException e) {
+                LOGGER.warn("LEASE_RENEW_ERROR", e, group, e.getMessage());
+                // the leases have expired by now and other members may have taken the units
+                if (!owned.isEmpty() && System.currentTimeMillis() - renewedAt >= clusterInfo.getLeaseDuration())
+                    owned = new LinkedHashSet<>();
+            }
+            changed = !owned.equals(previous) || members != previousMembers;
+        }
+        if (changed)
+            listener.ownershipChanged();
+        return TimeUnit.MILLISECONDS.toNanos(clusterInfo.getRenewInterval());
+    }
+
+    private void rebalance() throws AMQP10TransportException {
+        long now = System.currentTimeMillis();
+        store.acquire(group, MEMBER_PREFIX + nodeId, nodeId, clusterInfo.getLeaseDuration());
+        // handed over in the last renewal, their links have stopped since
+        for (String unit : new ArrayList<>(releasing)) {
+            store.release(group, UNIT_PREFIX + unit, nodeId);
+            releasing.remove(unit);
+        }
+        List<String> liveMembers = new ArrayList<>();
+        for (AMQP10Lease lease : store.list(group)) {
+            if (lease.getName().startsWith(MEMBER_PREFIX))
+                liveMembers.add(lease.getOwner());
+        }
+        if (!liveMembers.contains(nodeId))
+            liveMembers.add(nodeId);
+        Collections.sort(liveMembers);
+        Set<String> nowOwned = new LinkedHashSet<>();
+        for (String unit : units) {
+            if (nodeId.equals(AMQP10EventHubInfo.owner(liveMembers, unit))) {
+                if (store.acquire(group, UNIT_PREFIX + unit, nodeId, clusterInfo.getLeaseDuration()))
+                    nowOwned.add(unit);
+            } else if (owned.contains(unit)) {
+                releasing.add(unit);
+            }
+        }
+        owned = nowOwned;
+        members = liveMembers.size();
+        renewedAt = now;
+    }
+}
@@ -0,0 +1,29 @@
+package com.esri.geoevent.transport.amqp10;
+
+import java.util.List;
+
+/**
+ * Holds the leases the members of a GeoEvent Server cluster split the work of an input with. A lease belongs to a
+ * group, the input, and is held by one member until it expires or is released. Implementations must make
+ * {@link #acquire} atomic across all members. A class that implements this interface and has a public constructor that
+ * takes an {@link AMQP10ClusterInfo} is used instead of the {@link AMQP10FileLeaseStore} when it is named by the system
+ * property {@value AMQP10ClusterInfo#LEASE_STORE_PROPERTY}.
+ */
+public interface AMQP10LeaseStore {
+    /**
+     * @return the leases of the group that have not expired
+     */
+    List<AMQP10Lease> list(String group) throws AMQP10TransportException;
+
+    /**
+     * Takes the lease if it is free or expired, or renews it if the owner holds it already.
+     *
+     * @return true if the owner holds the lease for the given duration
+     */
+    boolean acquire(String group, String name, String owner, long durationMillis) throws AMQP10TransportException;
+
+    /**
+     * Gives up the lease if the owner holds it, so that another member can take it without waiting for it to expire.
+     */
+    void release(String group, String name, String owner) throws AMQP10TransportException;
+}
@@ -0,0 +1,125 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.swiftmq.amqp.v100.client.Consumer;
+import com.swiftmq.amqp.v100.client.MessageAvailabilityListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives from the links of one or more destinations of an input. Each round visits every link that has messages and
+ * takes at most {@code weight * QUANTUM} messages from it, so a busy destination cannot starve a quiet one and weighted
+ * destinations get a proportionally larger share. A link that runs empty registers a listener with the SwiftMQ client
+ * and is skipped until the listener reports a new message. Rounds run on the shared receive pool, one round per turn so
+ * that the links of other inputs get their turn in between; when all links are empty no thread is used until a
+ * listener or a batch deadline wakes the scheduler up. Rounds of consumers that call the adapter on the receive thread
+ * may block in it, so the pool gets a spare thread while they run.
+ */
+public class AMQP10LinkScheduler implements AMQP10SerialTask.Step {
+    public static final int QUANTUM = 16;
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(AMQP10ConsumerService.MAX_RECEIVE_WAIT_MILLIS);
+    private static final long BACK_PRESSURE_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private final List<Link> links = new ArrayList<>();
+    private final String hostname;
+    private final int timeout;
+    private volatile AMQP10SerialTask task;
+
+    public AMQP10LinkScheduler(String hostname, int timeout) {
+        this.hostname = hostname;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Adds a consumer that was started with {@link AMQP10ConsumerService#startScheduled()}. Must be called before
+     * {@link #start()}.
+     */
+    public void add(AMQP10ConsumerService consumerService, AMQP10DestinationInfo destinationInfo) {
+        links.add(new Link(consumerService, destinationInfo));
+    }
+
+    public synchronized void start() {
+        boolean blocking = false;
+        for (Link link : links)
+            blocking |= link.consumerService.deliversInline();
+        task = new AMQP10SerialTask(this, AMQP10SharedExecutors.receive(), blocking);
+        task.wakeUp();
+    }
+
+    public synchronized void stop() {
+        if (task != null)
+            try {
+                task.cancel(timeout);
+            } finally {
+                task = null;
+            }
+    }
+
+    @Override
+    public long run() {
+        int received = 0;
+        boolean backPressured = false;
+        long now = System.nanoTime();
+        long idleNanos = MAX_IDLE_NANOS;
+        for (Link link : links) {
+            if (link.available && now - link.retryAtNanos >= 0) {
+                int max = link.destinationInfo.getWeight() * QUANTUM;
+                // cleared first, so a listener call during the receive is not lost
+                link.available = false;
+                try {
+                    int count = link.consumerService.receive(max, link);
+                    received += count;
+                    if (count >= max) {
+                        link.available = true;
+                    } else if (link.consumerService.isBackPressured()) {
+                        link.available = true;
+                        backPressured = true;
+                    }
+                    if (link.recoveryPolicy.hasFailures())
+                        link.recoveryPolicy.onSuccess();
+                } catch (Exception e) {
+                    LOGGER.info("CONSUMER_RECEIVE_ERROR", e, hostname, link.destinationInfo.getType(), link.destinationInfo.getName(), e.getMessage());
+                    link.available = true;
+                    link.retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(link.recoveryPolicy.onFailure());
+                }
+            }
+            if (!link.available)
+                idleNanos = Math.min(idleNanos, link.consumerService.nanosUntilDue());
+            else if (now - link.retryAtNanos < 0)
+                idleNanos = Math.min(idleNanos, link.retryAtNanos - now);
+        }
+        if (received > 0)
+            return AMQP10SerialTask.NOW;
+        return backPressured ? BACK_PRESSURE_WAIT_NANOS : Math.max(0L, idleNanos);
+    }
+
+    private void wakeUp() {
+        AMQP10SerialTask current = task;
+        if (current != null)
+            current.wakeUp();
+    }
+
+    private class Link implements MessageAvailabilityListener {
+        private final AMQP10ConsumerService consumerService;
+        private final AMQP10DestinationInfo destinationInfo;
+        // the link service only backs off, the connection service owns the circuit breaker
+        private final AMQP10ReconnectPolicy recoveryPolicy;
+        private volatile boolean available = true;
+        private long retryAtNanos = System.nanoTime();
+
+        Link(AMQP10ConsumerService consumerService, AMQP10DestinationInfo destinationInfo) {
+            this.consumerService = consumerService;
+            this.destinationInfo = destinationInfo;
+            recoveryPolicy = new AMQP10ReconnectPolicy(timeout, AMQP10ConsumerService.MAX_WAIT_TIME_MILLIS, 0, 0);
+        }
+
+        @Override
+        public void messageAvailable(Consumer consumer) {
+            available = true;
+            wakeUp();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the bodies of several messages into one framed buffer that is handed to the adapter in a single call.
+ * Bodies are either terminated by a newline or prefixed by their length as a 4-byte big-endian integer. The messages
+ * are kept so that they can be settled once the adapter has received the batch.
+ */
+public class AMQP10MessageBatch {
+    private static final int INITIAL_CAPACITY = 4096;
+    private final List<AMQPMessage> messages;
+    private final boolean lengthPrefixed;
+    private final long deadlineNanos;
+    private ByteBuffer buffer;
+
+    public AMQP10MessageBatch(int maxMessages, boolean lengthPrefixed, long deadlineNanos) {
+        this.messages = new ArrayList<>(maxMessages);
+        this.lengthPrefixed = lengthPrefixed;
+        this.deadlineNanos = deadlineNanos;
+        buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Appends the body to the batch. The body is copied, so it may be backed by a reusable buffer.
+     */
+    public void add(AMQPMessage message, ByteBuffer body) {
+        messages.add(message);
+        if (body == null || !body.hasRemaining())
+            return;
+        ensureRemaining(body.remaining() + (lengthPrefixed ? 4 : 1));
+        if (lengthPrefixed)
+            buffer.putInt(body.remaining());
+        buffer.put(body);
+        if (!lengthPrefixed)
+            buffer.put((byte) '\n');
+    }
+
+    public int size() {
+        return messages.size();
+    }
+
+    public List<AMQPMessage> getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the batch has to be delivered even if it is not full
+     */
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return the framed bodies, ready to be read
+     */
+    public ByteBuffer getBuffer() {
+        buffer.flip();
+        return buffer;
+    }
+
+    private void ensureRemaining(int length) {
+        if (buffer.remaining() >= length)
+            return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
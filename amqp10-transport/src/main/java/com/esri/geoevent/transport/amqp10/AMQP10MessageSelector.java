@@ -0,0 +1,528 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.swiftmq.amqp.v100.generated.messaging.message_format.ApplicationProperties;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.AMQPType;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A JMS-style message selector over the application properties of a message. The selector is parsed once into a tree
+ * of nodes; matching a message only converts the application properties the selector refers to and never touches the
+ * body. Supports comparisons, arithmetic, {@code AND}, {@code OR}, {@code NOT}, {@code BETWEEN}, {@code IN},
+ * {@code LIKE ... ESCAPE} and {@code IS NULL} with the three-valued logic of SQL: a property that is missing or has the
+ * wrong type makes a comparison unknown, and a message only matches if the selector is true.
+ */
+public class AMQP10MessageSelector {
+    private final String text;
+    private final String[] identifiers;
+    private final Node root;
+
+    private AMQP10MessageSelector(String text, String[] identifiers, Node root) {
+        this.text = text;
+        this.identifiers = identifiers;
+        this.root = root;
+    }
+
+    /**
+     * @throws ParseException if the selector is not valid, with the position of the offending token
+     */
+    public static AMQP10MessageSelector compile(String selector) throws ParseException {
+        Parser parser = new Parser(selector);
+        Node root = parser.parse();
+        return new AMQP10MessageSelector(selector, parser.identifiers.toArray(new String[0]), root);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean matches(AMQPMessage message) {
+        Object[] values = new Object[identifiers.length];
+        ApplicationProperties properties = message.getApplicationProperties();
+        if (properties != null) {
+            try {
+                for (Map.Entry<AMQPType, AMQPType> entry : properties.getValue().entrySet()) {
+                    String name = Util.asString(entry.getKey());
+                    for (int i = 0; i < identifiers.length; i++) {
+                        if (identifiers[i].equals(name))
+                            values[i] = Util.toValue(entry.getValue());
+                    }
+                }
+            } catch (Exception ignored) {
+                // properties that cannot be decoded are missing, so comparisons on them are unknown
+            }
+        }
+        return root.evaluate(values) == Boolean.TRUE;
+    }
+
+    private interface Node {
+        /**
+         * @return a String, Long, Double or Boolean, or null if the value is unknown
+         */
+        Object evaluate(Object[] values);
+    }
+
+    private static Boolean and(Object left, Object right) {
+        if (left == Boolean.FALSE || right == Boolean.FALSE)
+            return Boolean.FALSE;
+        return left == Boolean.TRUE && right == Boolean.TRUE ? Boolean.TRUE : null;
+    }
+
+    private static Boolean or(Object left, Object right) {
+        if (left == Boolean.TRUE || right == Boolean.TRUE)
+            return Boolean.TRUE;
+        return left == Boolean.FALSE && right == Boolean.FALSE ? Boolean.FALSE : null;
+    }
+
+    private static Boolean not(Object value) {
+        return value instanceof Boolean ? !(Boolean) value : null;
+    }
+
+    /**
+     * @return the sign of the comparison of two values, or null if they cannot be compared with the given operator
+     */
+    private static Integer compare(Object left, Object right, boolean ordering) {
+        if (left instanceof Number && right instanceof Number) {
+            if (left instanceof Long && right instanceof Long)
+                return Long.compare((Long) left, (Long) right);
+            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+        // strings and booleans can only be tested for equality
+        if (!ordering && left != null && right != null && left.getClass() == right.getClass())
+            return left.equals(right) ? 0 : 1;
+        return null;
+    }
+
+    private static Object arithmetic(char operator, Object left, Object right) {
+        if (!(left instanceof Number) || !(right instanceof Number))
+            return null;
+        if (left instanceof Long && right instanceof Long) {
+            long l = (Long) left;
+            long r = (Long) right;
+            switch (operator) {
+                case '+':
+                    return l + r;
+                case '-':
+                    return l - r;
+                case '*':
+                    return l * r;
+                default:
+                    return r != 0 ? (Object) (l / r) : null;
+            }
+        }
+        double l = ((Number) left).doubleValue();
+        double r = ((Number) right).doubleValue();
+        switch (operator) {
+            case '+':
+                return l + r;
+            case '-':
+                return l - r;
+            case '*':
+                return l * r;
+            default:
+                return l / r;
+        }
+    }
+
+    /**
+     * A recursive descent parser for the selector grammar of JMS 2.0, section 3.8.1.
+     */
+    private static class Parser {
+        private final String text;
+        private final List<String> identifiers = new ArrayList<>();
+        private int position;
+        private Token token;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Node parse() throws ParseException {
+            next();
+            Node node = or();
+            if (token.type != TokenType.END)
+                throw error("unexpected " + token.text);
+            return node;
+        }
+
+        private Node or() throws ParseException {
+            Node node = and();
+            while (keyword("OR")) {
+                final Node left = node;
+                final Node right = and();
+                node = new Node() {
+                    @Override
+                    public Object evaluate(Object[] values) {
+                        return AMQP10MessageSelector.or(left.evaluate(values), right.evaluate(values));
+                    }
+                };
+            }
+            return node;
+        }
+
+        private Node and() throws ParseException {
+            Node node = not();
+            while (keyword("AND")) {
+                final Node left = node;
+                final Node right = not();
+                node = new Node() {
+                    @Override
+                    public Object evaluate(Object[] values) {
+                        Object l = left.evaluate(values);
+                        // a false left side decides the result without evaluating the right side
+                        return l == Boolean.FALSE ? Boolean.FALSE : AMQP10MessageSelector.and(l, right.evaluate(values));
+                    }
+                };
+            }
+            return node;
+        }
+
+        private Node not() throws ParseException {
+            if (keyword("NOT")) {
+                final Node operand = not();
+                return new Node() {
+                    @Override
+                    public Object evaluate(Object[] values) {
+                        return AMQP10MessageSelector.not(operand.evaluate(values));
+                    }
+                };
+            }
+            return comparison();
+        }
+
+        private Node comparison() throws ParseException {
+            final Node left = additive();
+            if (token.type == TokenType.OPERATOR && isComparison(token.text)) {
+                final String operator = token.text;
+                next();
+                final Node right = additive();
+                return new Node() {
+                    @Override
+                    public Object evaluate(Object[] values) {
+                        Integer sign = compare(left.evaluate(values), right.evaluate(values), !"=".equals(operator) && !"<>".equals(operator));
+                        if (sign == null)
+                            return null;
+                        switch (operator) {
+                            case "=":
+                                return sign == 0;
+                            case "<>":
+                                return sign != 0;
+                            case "<":
+                                return sign < 0;
+                            case ">":
+                                return sign > 0;
+                            case "<=":
+                                return sign <= 0;
+                            default:
+                                return sign >= 0;
+                        }
+                    }
+                };
+            }
+            if (keyword("IS")) {
+                final boolean negated = keyword("NOT");
+                expectKeyword("NULL");
+                return new Node() {
+                    @Override
+                    public Object evaluate(Object[] values) {
+                        return (left.evaluate(values) == null) != negated;
+                    }
+                };
+            }
+            final boolean negated = keyword("NOT");
+            Node node;
+            if (keyword("BETWEEN")) {
+                final Node lower = additive();
+                expectKeyword("AND");
+                final Node upper = additive();
+                node = new Node() {
+                    @Override
+                    public Object evaluate(Object[] values) {
+                        Object value = left.evaluate(values);
+                        Integer low = compare(value, lower.evaluate(values), true);
+                        Integer high = compare(value, upper.evaluate(values), true);
+                        return AMQP10MessageSelector.and(low != null ? (Object) (low >= 0) : null, high != null ? (Object) (high <= 0) : null);
+                    }
+                };
+            } else if (keyword("IN")) {
+                expect("(");
+                final Set<String> set = new HashSet<>();
+                do {
+                    if (token.type != TokenType.STRING)
+                        throw error("string literal expected");
+                    set.add((String) token.value);
+                    next();
+                } while (accept(","));
+                expect(")");
+                node = new Node() {
+                    @Override
+                    public Object evaluate(Object[] values) {
+                        Object value = left.evaluate(values);
+                        return value instanceof String ? (Object) set.contains(value) : null;
+                    }
+                };
+            } else if (keyword("LIKE")) {
+                if (token.type != TokenType.STRING)
+                    throw error("string literal expected");
+                String pattern = (String) token.value;
+                next();
+                Character escape = null;
+                if (keyword("ESCAPE")) {
+                    if (token.type != TokenType.STRING || ((String) token.value).length() != 1)
+                        throw error("single character escape expected");
+                    escape = ((String) token.value).charAt(0);
+                    next();
+                }
+                final Pattern regex = likePattern(pattern, escape);
+                node = new Node() {
+                    @Override
+                    public Object evaluate(Object[] values) {
+                        Object value = left.evaluate(values);
+                        return value instanceof String ? (Object) regex.matcher((String) value).matches() : null;
+                    }
+                };
+            } else {
+                if (negated)
+                    throw error("BETWEEN, IN or LIKE expected");
+                return left;
+            }
+            if (!negated)
+                return node;
+            final Node positive = node;
+            return new Node() {
+                @Override
+                public Object evaluate(Object[] values) {
+                    return AMQP10MessageSelector.not(positive.evaluate(values));
+                }
+            };
+        }
+
+        private Node additive() throws ParseException {
+            Node node = multiplicative();
+            while (token.type == TokenType.OPERATOR && ("+".equals(token.text) || "-".equals(token.text)))
+                node = arithmeticNode(node, token.text.charAt(0), true);
+            return node;
+        }
+
+        private Node multiplicative() throws ParseException {
+            Node node = unary();
+            while (token.type == TokenType.OPERATOR && ("*".equals(token.text) || "/".equals(token.text)))
+                node = arithmeticNode(node, token.text.charAt(0), false);
+            return node;
+        }
+
+        private Node arithmeticNode(final Node left, final char operator, boolean additive) throws ParseException {
+            next();
+            final Node right = additive ? multiplicative() : unary();
+            return new Node() {
+                @Override
+                public Object evaluate(Object[] values) {
+                    return arithmetic(operator, left.evaluate(values), right.evaluate(values));
+                }
+            };
+        }
+
+        private Node unary() throws ParseException {
+            if (token.type == TokenType.OPERATOR && ("-".equals(token.text) || "+".equals(token.text))) {
+                final boolean minus = "-".equals(token.text);
+                next();
+                final Node operand = unary();
+                return new Node() {
+                    @Override
+                    public Object evaluate(Object[] values) {
+                        return minus ? arithmetic('-', 0L, operand.evaluate(values)) : arithmetic('+', 0L, operand.evaluate(values));
+                    }
+                };
+            }
+            return primary();
+        }
+
+        private Node primary() throws ParseException {
+            if (accept("(")) {
+                Node node = or();
+                expect(")");
+                return node;
+            }
+            final Object constant;
+            switch (token.type) {
+                case STRING:
+                case NUMBER:
+                    constant = token.value;
+                    break;
+                case IDENTIFIER:
+                    if ("TRUE".equalsIgnoreCase(token.text)) {
+                        constant = Boolean.TRUE;
+                    } else if ("FALSE".equalsIgnoreCase(token.text)) {
+                        constant = Boolean.FALSE;
+                    } else {
+                        int index = identifiers.indexOf(token.text);
+                        if (index < 0) {
+                            index = identifiers.size();
+                            identifiers.add(token.text);
+                        }
+                        final int slot = index;
+                        next();
+                        return new Node() {
+                            @Override
+                            public Object evaluate(Object[] values) {
+                                return values[slot];
+                            }
+                        };
+                    }
+                    break;
+                default:
+                    throw error("unexpected " + (token.type == TokenType.END ? "end of selector" : token.text));
+            }
+            next();
+            return new Node() {
+                @Override
+                public Object evaluate(Object[] values) {
+                    return constant;
+                }
+            };
+        }
+
+        private static boolean isComparison(String operator) {
+            return "=".equals(operator) || "<>".equals(operator) || "<".equals(operator) || ">".equals(operator) || "<=".equals(operator) || ">=".equals(operator);
+        }
+
+        private static Pattern likePattern(String like, Character escape) {
+            StringBuilder regex = new StringBuilder();
+            for (int i = 0; i < like.length(); i++) {
+                char c = like.charAt(i);
+                if (escape != null && c == escape && i + 1 < like.length())
+                    regex.append(Pattern.quote(String.valueOf(like.charAt(++i))));
+                else if (c == '%')
+                    regex.append(".*");
+                else if (c == '_')
+                    regex.append('.');
+                else
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        }
+
+        private boolean keyword(String keyword) throws ParseException {
+            if (token.type == TokenType.IDENTIFIER && keyword.equalsIgnoreCase(token.text)) {
+                next();
+                return true;
+            }
+            return false;
+        }
+
+        private void expectKeyword(String keyword) throws ParseException {
+            if (!keyword(keyword))
+                throw error(keyword + " expected");
+        }
+
+        private boolean accept(String punctuation) throws ParseException {
+            if (token.type == TokenType.OPERATOR && punctuation.equals(token.text)) {
+                next();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String punctuation) throws ParseException {
+            if (!accept(punctuation))
+                throw error(punctuation + " expected");
+        }
+
+        private ParseException error(String message) {
+            return new ParseException(message + " at position " + token.start, token.start);
+        }
+
+        private void next() throws ParseException {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+                position++;
+            int start = position;
+            if (position >= text.length()) {
+                token = new Token(TokenType.END, "", null, start);
+                return;
+            }
+            char c = text.charAt(position);
+            if (c == '\'') {
+                StringBuilder value = new StringBuilder();
+                position++;
+                while (true) {
+                    if (position >= text.length())
+                        throw new ParseException("unterminated string at position " + start, start);
+                    char s = text.charAt(position++);
+                    if (s == '\'') {
+                        // a quote inside a string literal is written as two quotes
+                        if (position < text.length() && text.charAt(position) == '\'') {
+                            value.append('\'');
+                            position++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        value.append(s);
+                    }
+                }
+                token = new Token(TokenType.STRING, text.substring(start, position), value.toString(), start);
+            } else if (Character.isDigit(c) || (c == '.' && position + 1 < text.length() && Character.isDigit(text.charAt(position + 1)))) {
+                boolean decimal = false;
+                while (position < text.length()) {
+                    char d = text.charAt(position);
+                    if (Character.isDigit(d)) {
+                        position++;
+                    } else if (d == '.' || d == 'e' || d == 'E') {
+                        decimal = true;
+                        position++;
+                        if ((d == 'e' || d == 'E') && position < text.length() && (text.charAt(position) == '-' || text.charAt(position) == '+'))
+                            position++;
+                    } else {
+                        break;
+                    }
+                }
+                String number = text.substring(start, position);
+                try {
+                    token = new Token(TokenType.NUMBER, number, decimal ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number), start);
+                } catch (NumberFormatException e) {
+                    throw new ParseException("invalid number " + number + " at position " + start, start);
+                }
+            } else if (Character.isJavaIdentifierStart(c)) {
+                while (position < text.length() && Character.isJavaIdentifierPart(text.charAt(position)))
+                    position++;
+                token = new Token(TokenType.IDENTIFIER, text.substring(start, position), null, start);
+            } else {
+                String two = position + 1 < text.length() ? text.substring(position, position + 2) : "";
+                if ("<>".equals(two) || "<=".equals(two) || ">=".equals(two)) {
+                    position += 2;
+                    token = new Token(TokenType.OPERATOR, two, null, start);
+                } else if ("=<>+-*/(),".indexOf(c) >= 0) {
+                    position++;
+                    token = new Token(TokenType.OPERATOR, String.valueOf(c), null, start);
+                } else {
+                    throw new ParseException("unexpected character " + c + " at position " + start, start);
+                }
+            }
+        }
+    }
+
+    private enum TokenType {
+        IDENTIFIER, STRING, NUMBER, OPERATOR, END
+    }
+
+    private static class Token {
+        final TokenType type;
+        final String text;
+        final Object value;
+        final int start;
+
+        Token(TokenType type, String text, Object value, int start) {
+            this.type = type;
+            this.text = text;
+            this.value = value;
+            this.start = start;
+        }
+    }
+}
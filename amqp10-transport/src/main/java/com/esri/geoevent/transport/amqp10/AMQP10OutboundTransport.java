@@ -0,0 +1,286 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.core.component.ComponentException;
+import com.esri.ges.core.component.RunningState;
+import com.esri.ges.core.validation.ValidationException;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.transport.OutboundTransportBase;
+import com.esri.ges.transport.TransportDefinition;
+import com.swiftmq.amqp.v100.client.Session;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AMQP10OutboundTransport extends OutboundTransportBase {
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10OutboundTransport.class);
+    private static final int TIMEOUT = 5000;
+    private AMQP10ConnectionInfo connectionInfo;
+    private AMQP10DestinationInfo destinationInfo;
+    private AMQP10ProducerInfo producerInfo;
+    private AMQP10ConnectionService connectionService;
+    private Session session;
+    private volatile AMQP10ProducerService producerService;
+    // kept across reconnects, so that the events the adapter handed over are sent on the next link
+    private volatile BlockingQueue<byte[]> sendQueue;
+    private final Queue<AMQPMessage> resendQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    // false while a start waits for the shared connection to come back
+    private boolean attached;
+    private final AMQP10ConnectionService.Listener reconnectListener = new AMQP10ConnectionService.Listener() {
+        @Override
+        public void reconnected(AMQP10ConnectionService connectionService) {
+            // the link is restarted on another thread, so that a stop holding the transport does not wait for the
+            // reconnect task while the reconnect task waits for the transport
+            AMQP10SharedExecutors.startup().execute(new Runnable() {
+                @Override
+                public void run() {
+                    relink();
+                }
+            });
+        }
+    };
+
+    public AMQP10OutboundTransport(TransportDefinition definition) throws ComponentException {
+        super(definition);
+    }
+
+    public boolean isClusterable() {
+        return true;
+    }
+
+    @SuppressWarnings("incomplete-switch")
+    @Override
+    public synchronized void start() {
+        switch (getRunningState()) {
+            case STOPPING:
+            case STOPPED:
+            case ERROR:
+                doStart();
+                break;
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!RunningState.STOPPED.equals(getRunningState())) {
+            doStop();
+        }
+    }
+
+    /**
+     * Copies the bytes written by the adapter into the send queue. While the queue is full, e.g. while the output
+     * reconnects, the GeoEvent thread blocks. Only a stopped output drops the event, which is logged and counted.
+     */
+    @Override
+    public void receive(ByteBuffer buffer, String channelId) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        try {
+            while (true) {
+                BlockingQueue<byte[]> queue = sendQueue;
+                if (queue == null || isStopped()) {
+                    if (droppedEvents.getAndIncrement() == 0 && destinationInfo != null)
+                        LOGGER.warn("PRODUCER_NOT_RUNNING", destinationInfo.getType(), destinationInfo.getName());
+                    return;
+                }
+                if (queue.offer(bytes, AMQP10ProducerService.MAX_QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    AMQP10ProducerService service = producerService;
+                    if (service != null)
+                        service.wakeUp();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isStopped() {
+        RunningState state = getRunningState();
+        return RunningState.STOPPED.equals(state) || RunningState.ERROR.equals(state);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+
+        doStop();
+
+        String password;
+        try {
+            password = getProperty("password").getDecryptedValue();
+        } catch (Exception e) {
+            password = getProperty("password").getValueAsString();
+        }
+
+        String hostname = getProperty("hostname").getValueAsString();
+        String port = getProperty("port").getValueAsString();
+        String tls = getProperty("tls").getValueAsString();
+        String authenticationRequired = getProperty("authenticationRequired").getValueAsString();
+        String saslAuthenticationType = getProperty("saslAuthenticationType").getValueAsString();
+        String username = getProperty("username").getValueAsString();
+        String sessionIncomingWindow = getProperty("sessionIncomingWindow").getValueAsString();
+        String sessionOutgoingWindow = getProperty("sessionOutgoingWindow").getValueAsString();
+        String reconnectDelay = getProperty("reconnectDelay").getValueAsString();
+        String maxReconnectDelay = getProperty("maxReconnectDelay").getValueAsString();
+        String circuitBreakerThreshold = getProperty("circuitBreakerThreshold").getValueAsString();
+        String circuitBreakerOpenTime = getProperty("circuitBreakerOpenTime").getValueAsString();
+
+        connectionInfo = new AMQP10ConnectionInfo(hostname, port, tls, authenticationRequired, saslAuthenticationType, username, password, sessionIncomingWindow, sessionOutgoingWindow, reconnectDelay, maxReconnectDelay, circuitBreakerThreshold, circuitBreakerOpenTime);
+
+        String destinationType = getProperty("destinationType").getValueAsString();
+        String destinationName = getProperty("destinationName").getValueAsString();
+
+        destinationInfo = new AMQP10DestinationInfo(destinationType, destinationName, null, null);
+
+        String maxInFlight = getProperty("maxInFlight").getValueAsString();
+        String preSettled = getProperty("preSettled").getValueAsString();
+        String messageBatchSize = getProperty("messageBatchSize").getValueAsString();
+
+        producerInfo = new AMQP10ProducerInfo(maxInFlight, preSettled, messageBatchSize);
+
+        // events that were not sent yet move to the resized queue
+        BlockingQueue<byte[]> previous = sendQueue;
+        BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(Math.max(1, producerInfo.getMaxInFlight() * producerInfo.getMessageBatchSize()));
+        if (previous != null)
+            previous.drainTo(queue, queue.remainingCapacity());
+        sendQueue = queue;
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        super.validate();
+        connectionInfo.validate();
+        destinationInfo.validate();
+        producerInfo.validate();
+    }
+
+    private synchronized void doStart() {
+        doStop();
+        setRunningState(RunningState.STARTING);
+        long dropped = droppedEvents.getAndSet(0);
+        if (dropped > 0)
+            LOGGER.warn("PRODUCER_EVENTS_DROPPED", dropped, destinationInfo.getType(), destinationInfo.getName());
+        try {
+            connectionService = AMQP10ConnectionRegistry.acquire(connectionInfo, TIMEOUT);
+            connectionService.addListener(reconnectListener);
+            attached = false;
+            if (!connectionService.isRunning()) {
+                // the shared connection is down; its monitor reconnects with back-off and the link is attached then
+                LOGGER.info("TRANSPORT_WAITING_FOR_CONNECTION", connectionInfo.getHostname());
+                return;
+            }
+            attached = true;
+            startLinks();
+            setRunningState(RunningState.STARTED);
+        } catch (AMQP10TransportException e) {
+            LOGGER.error("TRANSPORT_START_ERROR", e, e.getMessage());
+            doStop(e.getMessage());
+            setRunningState(RunningState.ERROR);
+        }
+    }
+
+    /**
+     * Called on the startup pool after the shared connection was re-established. The queued events and the messages the
+     * broker had not settled on the lost link are sent on the new one. A start that waited for the connection attaches
+     * its link now.
+     */
+    private synchronized void relink() {
+        if (connectionService == null)
+            return;
+        stopLinks();
+        try {
+            startLinks();
+            if (!attached) {
+                attached = true;
+                setRunningState(RunningState.STARTED);
+            }
+        } catch (AMQP10TransportException e) {
+            LOGGER.error("TRANSPORT_START_ERROR", e, e.getMessage());
+            doStop(e.getMessage());
+            setRunningState(RunningState.ERROR);
+        }
+    }
+
+    private void startLinks() throws AMQP10TransportException {
+        session = connectionService.createSession(connectionInfo.getSessionIncomingWindow(), connectionInfo.getSessionOutgoingWindow());
+        producerService = new AMQP10ProducerService(
+                connectionService.getConnection(),
+                session,
+                destinationInfo,
+                producerInfo,
+                sendQueue,
+                resendQueue,
+                TIMEOUT);
+        producerService.start();
+    }
+
+    private void stopLinks() {
+        if (producerService != null)
+            try {
+                producerService.stop();
+            } finally {
+                producerService = null;
+            }
+        if (connectionService != null)
+            try {
+                connectionService.closeSession(session);
+            } finally {
+                session = null;
+            }
+    }
+
+    private synchronized void doStop() {
+        doStop(null);
+    }
+
+    private synchronized void doStop(String reason) {
+        setRunningState(RunningState.STOPPING);
+        setErrorMessage(reason);
+        stopLinks();
+        if (connectionService != null)
+            try {
+                connectionService.removeListener(reconnectListener);
+                AMQP10ConnectionRegistry.release(connectionService);
+            } finally {
+                connectionService = null;
+            }
+        setRunningState(RunningState.STOPPED);
+    }
+
+    public void shutdown() {
+        doStop();
+        super.shutdown();
+    }
+}
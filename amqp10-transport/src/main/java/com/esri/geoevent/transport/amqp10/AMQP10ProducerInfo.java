@@ -0,0 +1,73 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.core.validation.Validatable;
+import com.esri.ges.core.validation.ValidationException;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.util.Converter;
+
+public class AMQP10ProducerInfo implements Validatable {
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10OutboundTransport.class);
+    private final int maxInFlight;
+    private final boolean preSettled;
+    private final int messageBatchSize;
+
+    public AMQP10ProducerInfo(String maxInFlight, String preSettled, String messageBatchSize) {
+        this.maxInFlight = Converter.convertToInteger(maxInFlight, 100);
+        this.preSettled = Converter.convertToBoolean(preSettled, false);
+        this.messageBatchSize = Converter.convertToInteger(messageBatchSize, 1);
+    }
+
+    /**
+     * @return the maximum number of sent messages the broker has not settled yet
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @return true if messages are sent settled (AT_MOST_ONCE) and the broker does not acknowledge them
+     */
+    public boolean isPreSettled() {
+        return preSettled;
+    }
+
+    /**
+     * @return the maximum number of GeoEvents sent in one AMQP message, each as its own Data section
+     */
+    public int getMessageBatchSize() {
+        return messageBatchSize;
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (maxInFlight <= 0)
+            throw new ValidationException(LOGGER.translate("PRODUCER_MAX_IN_FLIGHT_VALIDATE_ERROR"));
+        if (messageBatchSize <= 0)
+            throw new ValidationException(LOGGER.translate("PRODUCER_MESSAGE_BATCH_SIZE_VALIDATE_ERROR"));
+    }
+}
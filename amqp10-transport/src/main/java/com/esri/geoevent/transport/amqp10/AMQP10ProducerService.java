@@ -0,0 +1,219 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.swiftmq.amqp.v100.client.*;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Data;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the GeoEvents written by the adapter to a queue or topic. The adapter thread only enqueues the bytes; a sender
+ * task on the shared receive pool packs them into AMQP messages and pipelines the sends up to the configured number of
+ * unsettled deliveries. When the queue is empty or too many deliveries are unsettled, the sender goes idle until the
+ * output queues an event or the broker settles a delivery. Meanwhile the queue fills up and the GeoEvent thread blocks.
+ * <p>
+ * The send queue and the resend queue belong to the output and outlive the service. When the link fails, the sender
+ * creates the producer again; when the connection is lost, the output creates a new service on the new session. Either
+ * way the messages the broker has not settled yet go to the resend queue and are sent again before the queued events.
+ */
+public class AMQP10ProducerService implements AMQP10Service {
+    public static final int MAX_WAIT_TIME_MILLIS = 300000;
+    public static final int MAX_QUEUE_WAIT_MILLIS = 1000;
+    // messages the sender sends before it lets the tasks of other inputs and outputs have the thread
+    private static final int MESSAGES_PER_RUN = 256;
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10OutboundTransport.class);
+    private final Connection connection;
+    private final Session session;
+    private final AMQP10DestinationInfo destinationInfo;
+    private final AMQP10ProducerInfo producerInfo;
+    private final int timeout;
+    private final BlockingQueue<byte[]> sendQueue;
+    private final Queue<AMQPMessage> resendQueue;
+    private volatile Producer producer;
+    private AMQP10BoundedDeliveryMemory deliveryMemory;
+    private Semaphore inFlight;
+    private final AMQP10ReconnectPolicy recoveryPolicy;
+    private final Sender sender = new Sender();
+    private volatile AMQP10SerialTask senderTask;
+    private volatile boolean senderIdle;
+
+    public AMQP10ProducerService(Connection connection, Session session, AMQP10DestinationInfo destinationInfo, AMQP10ProducerInfo producerInfo, BlockingQueue<byte[]> sendQueue, Queue<AMQPMessage> resendQueue, int timeout) {
+        this.connection = connection;
+        this.session = session;
+        this.destinationInfo = destinationInfo;
+        this.producerInfo = producerInfo;
+        this.timeout = timeout;
+        this.sendQueue = sendQueue;
+        this.resendQueue = resendQueue;
+        // the connection service owns the circuit breaker, the link only backs off
+        recoveryPolicy = new AMQP10ReconnectPolicy(timeout, MAX_WAIT_TIME_MILLIS, 0, 0);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return connection != null && session != null && senderTask != null;
+    }
+
+    @Override
+    public synchronized void start() throws AMQP10TransportException {
+        if (!isRunning()) {
+            createProducer();
+            // a send waits while the broker withholds link credit
+            senderTask = new AMQP10SerialTask(sender, AMQP10SharedExecutors.receive(), true);
+            senderTask.wakeUp();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (senderTask != null) {
+            try {
+                senderTask.cancel(timeout);
+            } finally {
+                senderTask = null;
+            }
+        }
+        // the next service sends it
+        if (sender.pending != null) {
+            resendQueue.add(copy(sender.pending));
+            sender.pending = null;
+        }
+        closeProducer();
+        recoveryPolicy.onSuccess();
+    }
+
+    /**
+     * Wakes up the sender if it went idle, after an event was queued or a delivery was settled.
+     */
+    public void wakeUp() {
+        if (senderIdle) {
+            senderIdle = false;
+            AMQP10SerialTask current = senderTask;
+            if (current != null)
+                current.wakeUp();
+        }
+    }
+
+    private void createProducer() throws AMQP10TransportException {
+        try {
+            if (producerInfo.isPreSettled()) {
+                producer = session.createProducer(destinationInfo.getName(), QoS.AT_MOST_ONCE);
+            } else {
+                // the permits of a lost link are gone with it
+                inFlight = new Semaphore(producerInfo.getMaxInFlight());
+                deliveryMemory = new AMQP10BoundedDeliveryMemory(inFlight, new Runnable() {
+                    @Override
+                    public void run() {
+                        wakeUp();
+                    }
+                });
+                producer = session.createProducer(destinationInfo.getName(), QoS.AT_LEAST_ONCE, deliveryMemory);
+            }
+            LOGGER.info("PRODUCER_CREATE_SUCCESS", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName());
+        } catch (AMQPException e) {
+            throw new AMQP10TransportException(LOGGER.translate("PRODUCER_CREATE_ERROR", connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName(), e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Closes the producer and queues the messages the broker has not settled for the next producer. The broker may
+     * have received some of them, so they can arrive twice.
+     */
+    private void closeProducer() {
+        if (producer != null) {
+            try {
+                producer.close();
+            } catch (Exception ignored) {
+            } finally {
+                producer = null;
+            }
+        }
+        if (deliveryMemory != null) {
+            for (AMQPMessage message : deliveryMemory.getUnsettledMessages())
+                resendQueue.add(copy(message));
+            deliveryMemory = null;
+            inFlight = null;
+        }
+    }
+
+    private static AMQPMessage copy(AMQPMessage message) {
+        AMQPMessage copy = new AMQPMessage();
+        for (Data data : message.getData())
+            copy.addData(new Data(data.getValue()));
+        return copy;
+    }
+
+    private class Sender implements AMQP10SerialTask.Step {
+        private AMQPMessage pending;
+
+        @Override
+        public long run() {
+            try {
+                if (producer == null)
+                    createProducer();
+                for (int i = 0; i < MESSAGES_PER_RUN; i++) {
+                    if (pending == null)
+                        pending = nextMessage();
+                    if (pending == null) {
+                        // the output wakes the sender up when it queues the next event
+                        senderIdle = true;
+                        if (sendQueue.isEmpty() && resendQueue.isEmpty())
+                            return AMQP10SerialTask.ON_WAKE_UP;
+                        senderIdle = false;
+                        continue;
+                    }
+                    if (!acquireInFlight()) {
+                        // the delivery memory wakes the sender up when the broker settles a delivery
+                        senderIdle = true;
+                        if (!acquireInFlight())
+                            return AMQP10SerialTask.ON_WAKE_UP;
+                        senderIdle = false;
+                    }
+                    producer.send(pending);
+                    pending = null;
+                    if (recoveryPolicy.hasFailures())
+                        recoveryPolicy.onSuccess();
+                }
+                return AMQP10SerialTask.NOW;
+            } catch (Exception e) {
+                // keep the message and send it again on a new link after the back-off
+                LOGGER.info("PRODUCER_SEND_ERROR", e, connection.getOpenHostname(), destinationInfo.getType(), destinationInfo.getName(), e.getMessage());
+                closeProducer();
+                if (pending != null)
+                    pending = copy(pending);
+                return TimeUnit.MILLISECONDS.toNanos(recoveryPolicy.onFailure());
+            }
+        }
+
+        /**
+         * Takes a permit for one more unsettled delivery without waiting.
+         */
+        private boolean acquireInFlight() {
+            Semaphore permits = inFlight;
+            return permits == null || permits.tryAcquire();
+        }
+
+        private AMQPMessage nextMessage() {
+            AMQPMessage resend = resendQueue.poll();
+            if (resend != null)
+                return resend;
+            byte[] bytes = sendQueue.poll();
+            if (bytes == null)
+                return null;
+            AMQPMessage message = new AMQPMessage();
+            message.addData(new Data(bytes));
+            for (int i = 1; i < producerInfo.getMessageBatchSize(); i++) {
+                bytes = sendQueue.poll();
+                if (bytes == null)
+                    break;
+                message.addData(new Data(bytes));
+            }
+            return message;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.swiftmq.amqp.v100.generated.messaging.message_format.ApplicationProperties;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Header;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.MessageAnnotations;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Properties;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.AMQPType;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Puts selected application properties, message annotations and header fields in front of the body, so that the
+ * adapter can map them to GeoEvent fields without the producer copying them into the body. Only the requested keys are
+ * converted. With {@link #FORMAT_TEXT} the values precede the body as comma separated fields, with {@link #FORMAT_JSON}
+ * they are merged into the top-level JSON object of the body.
+ */
+public class AMQP10PropertyProjection implements AMQP10BodyExtractor {
+    public static final String FORMAT_TEXT = "Text";
+    public static final String FORMAT_JSON = "Json";
+    private static final String PROPERTY_PREFIX = "property:";
+    private static final String ANNOTATION_PREFIX = "annotation:";
+    private static final String HEADER_PREFIX = "header:";
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<StringBuilder> PREFIX = ThreadLocal.withInitial(StringBuilder::new);
+    private final AMQP10BodyExtractor delegate;
+    private final boolean json;
+    private final String[] names;
+    private final String[] propertyKeys;
+    private final String[] annotationKeys;
+    private final HeaderField[] headerFields;
+
+    private AMQP10PropertyProjection(AMQP10BodyExtractor delegate, boolean json, String[] names, String[] propertyKeys, String[] annotationKeys, HeaderField[] headerFields) {
+        this.delegate = delegate;
+        this.json = json;
+        this.names = names;
+        this.propertyKeys = propertyKeys;
+        this.annotationKeys = annotationKeys;
+        this.headerFields = headerFields;
+    }
+
+    /**
+     * Parses a comma separated list of keys. A key without prefix or with {@code property:} names an application
+     * property, {@code annotation:} a message annotation such as {@code x-opt-enqueued-time} and {@code header:} a field
+     * of the header or properties section such as {@code message-id}.
+     *
+     * @return the projection, or null if no key is given
+     * @throws ParseException if a header field is unknown
+     */
+    public static AMQP10PropertyProjection compile(String keys, String format, AMQP10BodyExtractor delegate) throws ParseException {
+        if (keys == null || keys.trim().isEmpty())
+            return null;
+        List<String> names = new ArrayList<>();
+        List<String> propertyKeys = new ArrayList<>();
+        List<String> annotationKeys = new ArrayList<>();
+        List<HeaderField> headerFields = new ArrayList<>();
+        for (String entry : keys.split(",")) {
+            String key = entry.trim();
+            if (key.isEmpty())
+                continue;
+            String name;
+            String property = null;
+            String annotation = null;
+            HeaderField header = null;
+            if (key.startsWith(ANNOTATION_PREFIX)) {
+                name = annotation = key.substring(ANNOTATION_PREFIX.length());
+            } else if (key.startsWith(HEADER_PREFIX)) {
+                name = key.substring(HEADER_PREFIX.length());
+                header = HeaderField.forName(name);
+                if (header == null)
+                    throw new ParseException("unknown header field " + name, keys.indexOf(key));
+            } else {
+                name = property = key.startsWith(PROPERTY_PREFIX) ? key.substring(PROPERTY_PREFIX.length()) : key;
+            }
+            names.add(name);
+            propertyKeys.add(property);
+            annotationKeys.add(annotation);
+            headerFields.add(header);
+        }
+        if (names.isEmpty())
+            return null;
+        // a section no key refers to is not walked at all
+        return new AMQP10PropertyProjection(delegate, FORMAT_JSON.equalsIgnoreCase(format), names.toArray(new String[0]), nullIfEmpty(propertyKeys), nullIfEmpty(annotationKeys), headerFields.toArray(new HeaderField[0]));
+    }
+
+    private static String[] nullIfEmpty(List<String> keys) {
+        for (String key : keys) {
+            if (key != null)
+                return keys.toArray(new String[0]);
+        }
+        return null;
+    }
+
+    @Override
+    public ByteBuffer extract(AMQPMessage message) throws Exception {
+        ByteBuffer body = delegate.extract(message);
+        if (body == null)
+            return null;
+        Object[] values = resolve(message);
+
+        StringBuilder prefix = PREFIX.get();
+        prefix.setLength(0);
+        boolean merge = false;
+        if (json) {
+            int first = firstNonWhitespace(body);
+            merge = first >= 0 && body.get(first) == '{';
+            prefix.append('{');
+            for (int i = 0; i < names.length; i++) {
+                appendJsonString(prefix, names[i]);
+                prefix.append(':');
+                appendJsonValue(prefix, values[i]);
+                prefix.append(',');
+            }
+            if (merge) {
+                // the opening brace of the body is replaced by the prefix, which already opened the object
+                body.position(first + 1);
+                int next = firstNonWhitespace(body);
+                if (next < 0 || body.get(next) == '}')
+                    prefix.setLength(prefix.length() - 1);
+            } else {
+                prefix.append("\"body\":");
+            }
+        } else {
+            for (Object value : values) {
+                appendTextValue(prefix, value);
+                prefix.append(',');
+            }
+        }
+
+        String suffix = json && !merge ? "}" : "";
+        ByteBuffer projected = AMQP10BufferPool.acquire(BUFFER, AMQP10BufferPool.maxEncodedLength(prefix) + body.remaining() + suffix.length());
+        AMQP10BufferPool.putUtf8(projected, prefix);
+        projected.put(body);
+        for (int i = 0; i < suffix.length(); i++)
+            projected.put((byte) suffix.charAt(i));
+        projected.flip();
+        return projected;
+    }
+
+    /**
+     * Looks up the requested keys, walking the application properties and the message annotations once each.
+     */
+    private Object[] resolve(AMQPMessage message) {
+        Object[] values = new Object[names.length];
+        resolveMap(message.getApplicationProperties(), propertyKeys, values);
+        resolveMap(message.getMessageAnnotations(), annotationKeys, values);
+        for (int i = 0; i < headerFields.length; i++) {
+            if (headerFields[i] != null)
+                values[i] = Util.toValue(headerFields[i].get(message));
+        }
+        return values;
+    }
+
+    private static void resolveMap(Object section, String[] keys, Object[] values) {
+        if (section == null || keys == null)
+            return;
+        try {
+            Map<AMQPType, AMQPType> map = section instanceof ApplicationProperties ? ((ApplicationProperties) section).getValue() : ((MessageAnnotations) section).getValue();
+            for (Map.Entry<AMQPType, AMQPType> entry : map.entrySet()) {
+                String name = Util.asString(entry.getKey());
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != null && keys[i].equals(name))
+                        values[i] = Util.toValue(entry.getValue());
+                }
+            }
+        } catch (Exception ignored) {
+            // a section that cannot be decoded leaves its keys empty
+        }
+    }
+
+    private static int firstNonWhitespace(ByteBuffer body) {
+        for (int i = body.position(); i < body.limit(); i++) {
+            byte b = body.get(i);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n')
+                return i;
+        }
+        return -1;
+    }
+
+    private static void appendJsonValue(StringBuilder out, Object value) {
+        if (value == null)
+            out.append("null");
+        else if (value instanceof String)
+            appendJsonString(out, (String) value);
+        else if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite()))
+            out.append("null");
+        else
+            out.append(value);
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                out.append('\\').append(c);
+            else if (c < 0x20)
+                out.append(String.format("\\u%04x", (int) c));
+            else
+                out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void appendTextValue(StringBuilder out, Object value) {
+        if (value == null)
+            return;
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            out.append(text);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"')
+                out.append('"');
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    /**
+     * The fields of the header and properties sections that can be projected, named as in the AMQP 1.0 specification.
+     */
+    private enum HeaderField {
+        MESSAGE_ID("message-id") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getMessageId() : null;
+            }
+        },
+        CORRELATION_ID("correlation-id") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getCorrelationId() : null;
+            }
+        },
+        TO("to") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getTo() : null;
+            }
+        },
+        REPLY_TO("reply-to") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getReplyTo() : null;
+            }
+        },
+        SUBJECT("subject") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getSubject() : null;
+            }
+        },
+        CONTENT_TYPE("content-type") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getContentType() : null;
+            }
+        },
+        CONTENT_ENCODING("content-encoding") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getContentEncoding() : null;
+            }
+        },
+        CREATION_TIME("creation-time") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getCreationTime() : null;
+            }
+        },
+        ABSOLUTE_EXPIRY_TIME("absolute-expiry-time") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getAbsoluteExpiryTime() : null;
+            }
+        },
+        GROUP_ID("group-id") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getGroupId() : null;
+            }
+        },
+        GROUP_SEQUENCE("group-sequence") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return properties != null ? properties.getGroupSequence() : null;
+            }
+        },
+        PRIORITY("priority") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return header != null ? header.getPriority() : null;
+            }
+        },
+        DELIVERY_COUNT("delivery-count") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return header != null ? header.getDeliveryCount() : null;
+            }
+        },
+        DURABLE("durable") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return header != null ? header.getDurable() : null;
+            }
+        },
+        TTL("ttl") {
+            @Override
+            Object get(Properties properties, Header header) {
+                return header != null ? header.getTtl() : null;
+            }
+        };
+
+        private final String name;
+
+        HeaderField(String name) {
+            this.name = name;
+        }
+
+        static HeaderField forName(String name) {
+            for (HeaderField field : values()) {
+                if (field.name.equalsIgnoreCase(name))
+                    return field;
+            }
+            return null;
+        }
+
+        Object get(AMQPMessage message) {
+            return get(message.getProperties(), message.getHeader());
+        }
+
+        abstract Object get(Properties properties, Header header);
+    }
+}
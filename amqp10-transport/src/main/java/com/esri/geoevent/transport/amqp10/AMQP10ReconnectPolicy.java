@@ -0,0 +1,82 @@
+package com.esri.geoevent.transport.amqp10;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Computes the delay before the next attempt to reconnect or to recover a link. Delays grow exponentially with
+ * decorrelated jitter ({@code min(max, random(base, previous * 3))}), so that many inputs that lost the same broker do
+ * not retry in lockstep. After a number of consecutive failures the circuit breaker opens and no attempt is made until
+ * the open time has passed. Then a single trial attempt is allowed (half-open): success closes the breaker, failure
+ * opens it again.
+ */
+public class AMQP10ReconnectPolicy {
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int failureThreshold;
+    private final long openTime;
+    private State state = State.CLOSED;
+    private int failures;
+    private long previousDelay;
+    private long openUntil;
+
+    /**
+     * @param failureThreshold the number of consecutive failures that open the circuit breaker, 0 disables it
+     */
+    public AMQP10ReconnectPolicy(long baseDelay, long maxDelay, int failureThreshold, long openTime) {
+        this.baseDelay = baseDelay;
+        this.maxDelay = Math.max(baseDelay, maxDelay);
+        this.failureThreshold = failureThreshold;
+        this.openTime = openTime;
+        previousDelay = baseDelay;
+    }
+
+    public static AMQP10ReconnectPolicy of(AMQP10ConnectionInfo connectionInfo) {
+        return new AMQP10ReconnectPolicy(connectionInfo.getReconnectDelay(), connectionInfo.getMaxReconnectDelay(), connectionInfo.getCircuitBreakerThreshold(), connectionInfo.getCircuitBreakerOpenTime());
+    }
+
+    /**
+     * @return true if an attempt may be made now, false while the circuit breaker is open
+     */
+    public synchronized boolean allowAttempt() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil)
+                return false;
+            state = State.HALF_OPEN;
+        }
+        return true;
+    }
+
+    /**
+     * @return the time in milliseconds until the circuit breaker allows the next attempt
+     */
+    public synchronized long getMillisUntilAttempt() {
+        return state == State.OPEN ? Math.max(0L, openUntil - System.currentTimeMillis()) : 0L;
+    }
+
+    public synchronized boolean hasFailures() {
+        return failures > 0;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        previousDelay = baseDelay;
+    }
+
+    /**
+     * @return the delay in milliseconds before the next attempt
+     */
+    public synchronized long onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || (failureThreshold > 0 && failures >= failureThreshold)) {
+            state = State.OPEN;
+            long delay = openTime / 2 + ThreadLocalRandom.current().nextLong(openTime / 2 + 1);
+            openUntil = System.currentTimeMillis() + delay;
+            return delay;
+        }
+        previousDelay = Math.min(maxDelay, ThreadLocalRandom.current().nextLong(baseDelay, Math.max(baseDelay, previousDelay * 3) + 1));
+        return previousDelay;
+    }
+}
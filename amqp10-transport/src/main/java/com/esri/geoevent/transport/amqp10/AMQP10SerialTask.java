@@ -0,0 +1,154 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs a step of work on a shared pool, never twice at the same time. The step says when it wants to run again: at
+ * once, after a delay, which leaves a timer on the shared timer, or only when it is woken up. A wake-up that arrives
+ * while the step runs makes it run once more afterwards, so none is lost. This replaces a thread per receive loop or
+ * monitor that would mostly sleep.
+ */
+final class AMQP10SerialTask implements Runnable {
+    static final long NOW = 0L;
+    static final long ON_WAKE_UP = Long.MAX_VALUE;
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private final Step step;
+    private final Executor executor;
+    private final boolean blocking;
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private final AtomicBoolean wokenUp = new AtomicBoolean();
+    private final ReentrantLock runLock = new ReentrantLock();
+    private final Runnable wakeUp = new Runnable() {
+        @Override
+        public void run() {
+            wakeUp();
+        }
+    };
+    private volatile boolean cancelled;
+    private volatile Thread runner;
+    private ScheduledFuture<?> timer;
+
+    interface Step {
+        /**
+         * @return the nanoseconds until the step wants to run again, {@link #NOW} or {@link #ON_WAKE_UP}
+         */
+        long run();
+    }
+
+    AMQP10SerialTask(Step step, Executor executor) {
+        this(step, executor, false);
+    }
+
+    /**
+     * @param blocking true if the step may block, e.g. because it calls the adapter. It then runs through
+     *                 {@link AMQP10SharedExecutors#block(AMQP10SharedExecutors.Blocker)}.
+     */
+    AMQP10SerialTask(Step step, Executor executor, boolean blocking) {
+        this.step = step;
+        this.executor = executor;
+        this.blocking = blocking;
+    }
+
+    /**
+     * Runs the step as soon as a thread of the pool is free, or once more after the run in progress.
+     */
+    void wakeUp() {
+        if (cancelled)
+            return;
+        wokenUp.set(true);
+        if (queued.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                queued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Runs the step after the given delay, replacing an earlier timer.
+     */
+    synchronized void schedule(long delayNanos) {
+        if (cancelled)
+            return;
+        if (timer != null)
+            timer.cancel(false);
+        timer = AMQP10SharedExecutors.timer().schedule(wakeUp, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void run() {
+        long next = ON_WAKE_UP;
+        runLock.lock();
+        try {
+            runner = Thread.currentThread();
+            if (!cancelled) {
+                wokenUp.set(false);
+                next = blocking ? runBlocking() : step.run();
+            }
+        } finally {
+            runner = null;
+            // an interrupt by cancel() must not hit the next task of the pool thread
+            Thread.interrupted();
+            queued.set(false);
+            runLock.unlock();
+        }
+        if (cancelled)
+            return;
+        if (next == NOW || wokenUp.get())
+            wakeUp();
+        else if (next != ON_WAKE_UP)
+            schedule(next);
+    }
+
+    private long runBlocking() {
+        try {
+            return AMQP10SharedExecutors.block(new AMQP10SharedExecutors.Blocker<Long>() {
+                @Override
+                Long call() {
+                    return step.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // Step.run() throws no checked exception
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stops the task and waits for a run in progress to finish. A run that does not finish in time is interrupted.
+     * May be called by the step itself.
+     */
+    void cancel(int timeoutMillis) {
+        cancelled = true;
+        synchronized (this) {
+            if (timer != null)
+                timer.cancel(false);
+            timer = null;
+        }
+        try {
+            if (!runLock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                Thread current = runner;
+                if (current != null)
+                    current.interrupt();
+                if (!runLock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("EXECUTOR_SERVICE_TERMINATION_TIMEOUT", timeoutMillis);
+                    return;
+                }
+            }
+            runLock.unlock();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.esri.geoevent.transport.amqp10;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Thread pools that are shared by all inputs and outputs of the bundle, so that their number of threads does not grow
+ * with the number of inputs. Receive loops, polls and connection monitors are tasks that run for a moment and then
+ * either ask to run again or leave a timer behind; see {@link AMQP10SerialTask}. Idle threads of all pools end after a
+ * minute, so a redeployed bundle does not leave threads behind.
+ * <p>
+ * Handshakes run on the startup pool and may wait for a timeout each. Connection checks, checkpoint writes and lease
+ * renewals have a pool of their own, so that many inputs starting at once against an unreachable broker cannot delay
+ * them.
+ * <p>
+ * Work on the receive pool that may block, above all the adapter, runs through {@link #block(Blocker)}. The pool then
+ * starts or wakes a spare thread for as long as the call blocks, so a slow adapter or a full disk of one input does
+ * not stall the inputs that share the pool.
+ */
+public final class AMQP10SharedExecutors {
+    public static final String STARTUP_THREADS_PROPERTY = "com.esri.geoevent.transport.amqp10.startupThreads";
+    public static final String RECEIVE_THREADS_PROPERTY = "com.esri.geoevent.transport.amqp10.receiveThreads";
+    public static final String MONITOR_THREADS_PROPERTY = "com.esri.geoevent.transport.amqp10.monitorThreads";
+    private static final int IDLE_SECONDS = 60;
+    // as many as the common pool allows, the receive pool does not grow beyond its parallelism otherwise
+    private static final int MAX_SPARE_THREADS = 256;
+    private static final ExecutorService STARTUP = newStartupPool();
+    private static final ExecutorService RECEIVE = newReceivePool();
+    private static final ExecutorService MONITOR = newMonitorPool();
+    private static final ScheduledExecutorService TIMER = newTimer();
+
+    private AMQP10SharedExecutors() {
+    }
+
+    /**
+     * @return the pool that connects and attaches the links of starting inputs. Its threads are created on demand and
+     * end after a minute without work, and tasks beyond its size wait in line.
+     */
+    public static ExecutorService startup() {
+        return STARTUP;
+    }
+
+    /**
+     * @return the work-stealing pool that runs the receive loops and polls of all consumers, one thread per processor
+     * by default. Tasks are taken in submission order, so a busy link that asks to run again queues up behind the others.
+     */
+    public static ExecutorService receive() {
+        return RECEIVE;
+    }
+
+    /**
+     * @return the pool that checks connections and writes checkpoints and leases. Handshakes must not run on it.
+     */
+    public static ExecutorService monitor() {
+        return MONITOR;
+    }
+
+    /**
+     * @return the timer that wakes up idle tasks. Timer tasks must only hand work over to one of the pools.
+     */
+    public static ScheduledExecutorService timer() {
+        return TIMER;
+    }
+
+    /**
+     * Runs a call that may block. On a thread of the receive pool the pool keeps its parallelism by starting or waking
+     * another thread until the call returns; on any other thread the call just runs.
+     */
+    static <V> V block(Blocker<V> blocker) throws Exception {
+        if (!(Thread.currentThread() instanceof ForkJoinWorkerThread))
+            return blocker.call();
+        ForkJoinPool.managedBlock(blocker);
+        if (blocker.failure != null)
+            throw blocker.failure;
+        return blocker.result;
+    }
+
+    /**
+     * A call that may block, e.g. in the adapter, on a full queue or on the disk. See {@link #block(Blocker)}.
+     */
+    abstract static class Blocker<V> implements ForkJoinPool.ManagedBlocker {
+        private boolean done;
+        private V result;
+        private Exception failure;
+
+        abstract V call() throws Exception;
+
+        @Override
+        public final boolean block() {
+            try {
+                result = call();
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                done = true;
+            }
+            return true;
+        }
+
+        @Override
+        public final boolean isReleasable() {
+            return done;
+        }
+    }
+
+    private static ExecutorService newStartupPool() {
+        int threads = Math.max(1, Integer.getInteger(STARTUP_THREADS_PROPERTY, 8));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("amqp10-startup"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ExecutorService newMonitorPool() {
+        int threads = Math.max(1, Integer.getInteger(MONITOR_THREADS_PROPERTY, 2));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("amqp10-monitor"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ExecutorService newReceivePool() {
+        int threads = Math.max(1, Integer.getInteger(RECEIVE_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+        return new ForkJoinPool(threads, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("amqp10-receive-" + count.incrementAndGet());
+                // adapters run on these threads and may load classes through the context class loader
+                thread.setContextClassLoader(AMQP10SharedExecutors.class.getClassLoader());
+                return thread;
+            }
+        }, null, true, 0, threads + MAX_SPARE_THREADS, threads, new Predicate<ForkJoinPool>() {
+            @Override
+            public boolean test(ForkJoinPool pool) {
+                // with all spare threads in use a blocking call waits without one
+                return true;
+            }
+        }, IDLE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static ScheduledExecutorService newTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("amqp10-timer"));
+        // most timers are cancelled before they fire, because the task they wake up ran earlier
+        timer.setRemoveOnCancelPolicy(true);
+        timer.setKeepAliveTime(IDLE_SECONDS, TimeUnit.SECONDS);
+        timer.allowCoreThreadTimeOut(true);
+        return timer;
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setContextClassLoader(AMQP10SharedExecutors.class.getClassLoader());
+            // the pool must not keep GeoEvent Server from shutting down
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.messaging.ByteListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * A journal on local disk that decouples the broker from the adapter. The consumers of an input append the received
+ * bodies to memory-mapped segment files and settle the deliveries once their batch has been forced to disk, while a
+ * reader task on the shared receive pool replays the journal into the adapter at its own pace. A record that was handed to the adapter is marked
+ * as consumed in place, and a segment is deleted once the reader has moved past it. Records that were not consumed
+ * when the input stopped or the process died are replayed on the next start, so the at-least-once guarantee holds
+ * across restarts.
+ * <p>
+ * A record is a header of length, CRC-32 of the body and the index of the destination it was received from, followed
+ * by the body. The length is written last, so a record torn by a crash is either missing or fails its checksum; a
+ * negative length marks a consumed record and a zero length the end of the data in a segment.
+ */
+public class AMQP10Spool {
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String LOCK_FILE = "spool.lock";
+    private static final String MANIFEST_FILE = "destinations.txt";
+    private static final int MAX_DIRECTORY_NAME = 100;
+    private static final int HEADER_SIZE = 12;
+    private static final int MAX_WAIT_MILLIS = 1000;
+    // records the reader hands over before it lets the tasks of other inputs have the thread
+    private static final int RECORDS_PER_RUN = 256;
+    private final Path directory;
+    private final List<String> destinationNames;
+    private final AMQP10SpoolInfo spoolInfo;
+    private volatile List<AMQP10InputMetrics> metrics;
+    private final String channelId = UUID.randomUUID().toString();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final List<Segment> dirty = new ArrayList<>();
+    private final List<Path> undeleted = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+    private final Object syncLock = new Object();
+    private final AtomicLong backlog = new AtomicLong();
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private Segment writeSegment;
+    private long appended;
+    private volatile long synced;
+    // only used by the reader task
+    private Segment readSegment;
+    private int readPosition;
+    private AMQP10SerialTask reader;
+    // guarded by the spool
+    private boolean readerIdle;
+    private volatile boolean stopped = true;
+
+    public AMQP10Spool(AMQP10SpoolInfo spoolInfo, String hostname, List<String> destinationNames, List<AMQP10InputMetrics> metrics) {
+        this.spoolInfo = spoolInfo;
+        this.metrics = new ArrayList<>(metrics);
+        this.destinationNames = new ArrayList<>(destinationNames);
+        directory = Paths.get(spoolInfo.getDirectory(), hostname, directoryName(destinationNames));
+    }
+
+    /**
+     * Names the journal directory after its destination. The directory of several destinations, or of a name too long
+     * for a file name, is named after a hash of the sorted destination names instead, so that the same destinations
+     * always find their journal; {@value #MANIFEST_FILE} in the directory lists them.
+     */
+    static String directoryName(List<String> destinationNames) {
+        String first = destinationNames.get(0).replaceAll("[^A-Za-z0-9._-]", "_");
+        if (destinationNames.size() == 1 && first.length() <= MAX_DIRECTORY_NAME)
+            return first;
+        List<String> sorted = new ArrayList<>(destinationNames);
+        Collections.sort(sorted);
+        StringBuilder names = new StringBuilder();
+        for (String name : sorted)
+            names.append(name).append('\n');
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(names.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // the readable part is taken from the sorted names as well, so the order of the destinations does not matter
+        String readable = sorted.get(0).replaceAll("[^A-Za-z0-9._-]", "_");
+        StringBuilder name = new StringBuilder(readable.substring(0, Math.min(readable.length(), 40)));
+        if (destinationNames.size() > 1)
+            name.append('+').append(destinationNames.size() - 1);
+        name.append('-');
+        for (int i = 0; i < 8; i++)
+            name.append(String.format("%02x", digest[i]));
+        return name.toString();
+    }
+
+    /**
+     * Opens the journal, recovers the records that were not consumed before and starts replaying them into the adapter.
+     */
+    public synchronized void start(ByteListener byteListener) throws AMQP10TransportException {
+        if (!stopped)
+            return;
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null)
+                throw new AMQP10TransportException(LOGGER.translate("SPOOL_LOCKED", directory));
+            Files.write(directory.resolve(MANIFEST_FILE), destinationNames, StandardCharsets.UTF_8);
+            recover();
+        } catch (IOException e) {
+            release();
+            throw new AMQP10TransportException(LOGGER.translate("SPOOL_OPEN_ERROR", directory, e.getMessage()), e);
+        } catch (AMQP10TransportException e) {
+            release();
+            throw e;
+        }
+        LOGGER.info("SPOOL_OPENED", directory, backlog.get());
+        stopped = false;
+        readerIdle = false;
+        // the reader calls the adapter, so it may block
+        reader = new AMQP10SerialTask(new Reader(byteListener), AMQP10SharedExecutors.receive(), true);
+        reader.wakeUp();
+    }
+
+    /**
+     * Stops the reader after the record it is delivering and forces the journal to disk. Records that were not replayed
+     * yet stay in the journal for the next start.
+     */
+    public void stop() {
+        synchronized (this) {
+            if (stopped)
+                return;
+            stopped = true;
+            notifyAll();
+        }
+        try {
+            reader.cancel(MAX_WAIT_MILLIS);
+        } finally {
+            reader = null;
+        }
+        synchronized (this) {
+            // the consumed marks of the read segment are forced as well, so that they are not replayed again
+            for (Segment segment : segments)
+                segment.buffer.force();
+            dirty.clear();
+            segments.clear();
+            writeSegment = null;
+            readSegment = null;
+            release();
+        }
+    }
+
+    /**
+     * @return the maximum time in milliseconds a consumer holds appended messages before it syncs and settles them
+     */
+    public int getSyncInterval() {
+        return spoolInfo.getSyncInterval();
+    }
+
+    /**
+     * @return the number of records that were appended but not handed to the adapter yet
+     */
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    /**
+     * Replaces the metrics processed messages are counted on, after the links of the input were rebuilt. Messages
+     * spooled before may be counted on the wrong destination.
+     */
+    public void setMetrics(List<AMQP10InputMetrics> metrics) {
+        this.metrics = new ArrayList<>(metrics);
+    }
+
+    /**
+     * Appends a body to the journal. The record is visible to the reader at once but only durable after
+     * {@link #sync(long)}. When the journal holds its maximum number of segments the caller waits for the reader to
+     * free one, which stops the consumer from draining its link.
+     *
+     * @param source the index of the destination the body was received from
+     * @return the sequence number to pass to {@link #sync(long)}
+     */
+    public synchronized long append(int source, ByteBuffer body) throws Exception {
+        int length = body.remaining();
+        if (stopped)
+            throw new IOException(LOGGER.translate("SPOOL_CLOSED", directory));
+        if (length == 0)
+            return appended;
+        int recordSize = HEADER_SIZE + align(length);
+        while (writeSegment.end + recordSize > writeSegment.buffer.capacity()) {
+            if (segments.size() >= spoolInfo.getMaxSegments()) {
+                // wait for the reader to delete a segment, the receive pool gets a spare thread meanwhile
+                AMQP10SharedExecutors.block(new AMQP10SharedExecutors.Blocker<Void>() {
+                    @Override
+                    Void call() throws InterruptedException {
+                        AMQP10Spool.this.wait(MAX_WAIT_MILLIS);
+                        return null;
+                    }
+                });
+                if (stopped)
+                    throw new IOException(LOGGER.translate("SPOOL_CLOSED", directory));
+                continue;
+            }
+            writeSegment = createSegment(writeSegment.index + 1, recordSize);
+            segments.addLast(writeSegment);
+        }
+        int position = writeSegment.end;
+        ByteBuffer view = writeSegment.writeView;
+        view.position(position + HEADER_SIZE);
+        view.put(body.duplicate());
+        crc.reset();
+        crc.update(body.duplicate());
+        writeSegment.buffer.putInt(position + 4, (int) crc.getValue());
+        writeSegment.buffer.putInt(position + 8, source);
+        writeSegment.buffer.putInt(position, length);
+        writeSegment.end = position + recordSize;
+        if (dirty.isEmpty() || dirty.get(dirty.size() - 1) != writeSegment)
+            dirty.add(writeSegment);
+        backlog.incrementAndGet();
+        if (readerIdle) {
+            readerIdle = false;
+            reader.wakeUp();
+        }
+        return ++appended;
+    }
+
+    /**
+     * Forces the journal to disk up to the given sequence number. Appends of several consumers that arrive while one of
+     * them forces are written by the next call together.
+     */
+    public void sync(long sequence) throws Exception {
+        synchronized (syncLock) {
+            if (synced >= sequence)
+                return;
+            long upTo;
+            final Segment[] pending;
+            synchronized (this) {
+                upTo = appended;
+                pending = dirty.toArray(new Segment[0]);
+                dirty.clear();
+            }
+            // forcing waits for the disk, the receive pool gets a spare thread meanwhile
+            AMQP10SharedExecutors.block(new AMQP10SharedExecutors.Blocker<Void>() {
+                @Override
+                Void call() {
+                    for (Segment segment : pending)
+                        segment.buffer.force();
+                    return null;
+                }
+            });
+            synced = upTo;
+        }
+    }
+
+    private void recover() throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        for (Map.Entry<Long, Path> file : files.entrySet()) {
+            Segment segment = mapSegment(file.getKey(), file.getValue(), (int) Files.size(file.getValue()));
+            int unconsumed = scan(segment);
+            if (unconsumed == 0 && !file.getKey().equals(files.lastKey())) {
+                // every record was replayed before, only the last segment is kept to append to
+                delete(segment);
+                continue;
+            }
+            segments.addLast(segment);
+            backlog.addAndGet(unconsumed);
+        }
+        if (segments.isEmpty())
+            segments.addLast(createSegment(files.isEmpty() ? 0 : files.lastKey() + 1, 0));
+        writeSegment = segments.peekLast();
+        readSegment = segments.peekFirst();
+        readPosition = 0;
+    }
+
+    /**
+     * Finds the end of the valid records of a segment.
+     *
+     * @return the number of records that were not consumed
+     */
+    private int scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        int unconsumed = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length == 0 || length == Integer.MIN_VALUE)
+                break;
+            int size = HEADER_SIZE + align(Math.abs(length));
+            if (size < 0 || position + size > buffer.capacity())
+                break;
+            if (length > 0) {
+                ByteBuffer body = buffer.duplicate();
+                body.limit(position + HEADER_SIZE + length).position(position + HEADER_SIZE);
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    LOGGER.warn("SPOOL_TORN_RECORD", segment.file, position);
+                    break;
+                }
+                unconsumed++;
+            }
+            position += size;
+        }
+        segment.end = position;
+        return unconsumed;
+    }
+
+    private Segment createSegment(long index, int minimumSize) throws IOException {
+        Path file = directory.resolve(String.format("%019d%s", index, SEGMENT_SUFFIX));
+        return mapSegment(index, file, Math.max(spoolInfo.getSegmentSize(), minimumSize));
+    }
+
+    private static Segment mapSegment(long index, Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return new Segment(index, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * Deletes the file of a segment that was replayed completely. Windows refuses to delete a file while it is mapped,
+     * and Java cannot unmap a buffer explicitly, so a file that cannot be deleted yet is tried again later.
+     */
+    private void delete(Segment segment) {
+        synchronized (undeleted) {
+            undeleted.add(segment.file);
+            for (Iterator<Path> files = undeleted.iterator(); files.hasNext(); ) {
+                try {
+                    Files.deleteIfExists(files.next());
+                    files.remove();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void release() {
+        try {
+            if (lock != null)
+                lock.release();
+            if (lockChannel != null)
+                lockChannel.close();
+        } catch (IOException ignored) {
+        } finally {
+            lock = null;
+            lockChannel = null;
+        }
+    }
+
+    private static int align(int length) {
+        return (length + 3) & ~3;
+    }
+
+    /**
+     * Replays the journal into the adapter and marks every record it handed over as consumed. Goes idle when it has
+     * caught up with the writer until the next append.
+     */
+    private class Reader implements AMQP10SerialTask.Step {
+        private final ByteListener byteListener;
+
+        Reader(ByteListener byteListener) {
+            this.byteListener = byteListener;
+        }
+
+        @Override
+        public long run() {
+            for (int i = 0; i < RECORDS_PER_RUN; i++) {
+                int position = next();
+                if (position < 0)
+                    return AMQP10SerialTask.ON_WAKE_UP;
+                deliver(position);
+            }
+            return AMQP10SerialTask.NOW;
+        }
+
+        /**
+         * @return the position of the next unconsumed record in the read segment, or -1 if the reader has caught up or
+         * the spool was stopped
+         */
+        private int next() {
+            while (true) {
+                int end;
+                boolean sealed;
+                synchronized (AMQP10Spool.this) {
+                    if (stopped)
+                        return -1;
+                    if (readSegment == writeSegment && readPosition >= writeSegment.end) {
+                        readerIdle = true;
+                        return -1;
+                    }
+                    end = readSegment.end;
+                    sealed = readSegment != writeSegment;
+                }
+                if (readPosition >= end) {
+                    if (sealed)
+                        advance();
+                    continue;
+                }
+                int position = readPosition;
+                int length = readSegment.buffer.getInt(position);
+                readPosition = position + HEADER_SIZE + align(Math.abs(length));
+                // records consumed before a restart are skipped
+                if (length > 0)
+                    return position;
+            }
+        }
+
+        private void advance() {
+            Segment done;
+            synchronized (AMQP10Spool.this) {
+                done = segments.removeFirst();
+                readSegment = segments.peekFirst();
+                readPosition = 0;
+                AMQP10Spool.this.notifyAll();
+            }
+            delete(done);
+        }
+
+        private void deliver(int position) {
+            MappedByteBuffer buffer = readSegment.buffer;
+            int length = buffer.getInt(position);
+            int source = buffer.getInt(position + 8);
+            ByteBuffer body = readSegment.readView;
+            body.limit(position + HEADER_SIZE + length).position(position + HEADER_SIZE);
+            long start = System.nanoTime();
+            try {
+                byteListener.receive(body, channelId);
+            } catch (RuntimeException e) {
+                LOGGER.warn("SPOOL_DELIVERY_ERROR", e, e.getMessage());
+            }
+            List<AMQP10InputMetrics> current = metrics;
+            if (source >= 0 && source < current.size())
+                current.get(source).processed(System.nanoTime() - start, 1);
+            buffer.putInt(position, -length);
+            backlog.decrementAndGet();
+        }
+    }
+
+    private static final class Segment {
+        final long index;
+        final Path file;
+        final MappedByteBuffer buffer;
+        // each side gets its own view, because bulk transfers move the position of the buffer
+        final ByteBuffer writeView;
+        final ByteBuffer readView;
+        // the end of the records, guarded by the spool
+        int end;
+
+        Segment(long index, Path file, MappedByteBuffer buffer) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+            writeView = buffer.duplicate();
+            readView = buffer.duplicate();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+  Copyright 1995-2015 Esri
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+  For additional information, contact:
+  Environmental Systems Research Institute, Inc.
+  Attn: Contracts Dept
+  380 New York Street
+  Redlands, California, USA 92373
+
+  email: contracts@esri.com
+*/
+
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.core.validation.Validatable;
+import com.esri.ges.core.validation.ValidationException;
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.esri.ges.util.Converter;
+
+import java.io.File;
+
+public class AMQP10SpoolInfo implements Validatable {
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    private final boolean enabled;
+    private final String directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final int syncInterval;
+
+    public AMQP10SpoolInfo(String spool, String spoolDirectory, String spoolSegmentSize, String spoolMaxSegments, String spoolSyncInterval) {
+        this.enabled = Converter.convertToBoolean(spool, false);
+        this.directory = (spoolDirectory == null || spoolDirectory.trim().isEmpty()) ? defaultSpoolDirectory() : spoolDirectory.trim();
+        this.segmentSize = Converter.convertToInteger(spoolSegmentSize, 67108864);
+        this.maxSegments = Converter.convertToInteger(spoolMaxSegments, 16);
+        this.syncInterval = Converter.convertToInteger(spoolSyncInterval, 100);
+    }
+
+    private static String defaultSpoolDirectory() {
+        String data = System.getProperty("karaf.data");
+        return new File(data != null ? data : System.getProperty("java.io.tmpdir"), "amqp10-spool").getPath();
+    }
+
+    /**
+     * @return true if received messages are written to the spool and settled before the adapter has processed them
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the size in bytes of a segment file of the spool
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * @return the number of segment files after which receiving waits for the adapter to catch up
+     */
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    /**
+     * @return the maximum time in milliseconds a spooled message waits to be forced to disk and settled
+     */
+    public int getSyncInterval() {
+        return syncInterval;
+    }
+
+    @Override
+    public void validate() throws ValidationException {
+        if (segmentSize < 4096 || maxSegments < 2 || syncInterval <= 0)
+            throw new ValidationException(LOGGER.translate("SPOOL_VALIDATE_ERROR"));
+    }
+}
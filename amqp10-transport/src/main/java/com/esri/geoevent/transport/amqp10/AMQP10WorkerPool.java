@@ -0,0 +1,144 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.framework.i18n.BundleLogger;
+import com.esri.ges.framework.i18n.BundleLoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded set of serial workers that process the messages received by one or more consumers of an input. Messages
+ * with the same ordering key always run on the same worker, so their order is preserved. Messages without a key are
+ * spread round-robin. Every worker uses its own channel id, because adapters keep per-channel state. The workers are
+ * tasks on the shared receive pool that go idle when their queue is empty, so an input does not own threads. When a
+ * worker queue is full the receiving thread blocks, which stops the consumer from draining its link.
+ */
+public class AMQP10WorkerPool {
+    private static final BundleLogger LOGGER = BundleLoggerFactory.getLogger(AMQP10InboundTransport.class);
+    // tasks a worker runs before it lets the tasks of other inputs have the thread
+    private static final int TASKS_PER_RUN = 256;
+    private static final int MAX_QUEUE_WAIT_MILLIS = 100;
+    private final Worker[] workers;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    public interface Task {
+        void run(String channelId) throws Exception;
+    }
+
+    public AMQP10WorkerPool(int threads, int queueCapacity) {
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+            workers[i] = new Worker(queueCapacity);
+    }
+
+    public int size() {
+        return workers.length;
+    }
+
+    /**
+     * @return the worker that processes messages with the given ordering key, or the next worker round-robin if the key
+     * is null
+     */
+    public int indexOf(Object orderingKey) {
+        return orderingKey != null ? Math.floorMod(orderingKey.hashCode(), workers.length) : Math.floorMod(next.getAndIncrement(), workers.length);
+    }
+
+    public void execute(Object orderingKey, Task task) {
+        execute(indexOf(orderingKey), task);
+    }
+
+    /**
+     * Queues a task for the given worker, waiting while its queue is full.
+     *
+     * @throws RejectedExecutionException if the pool was shut down
+     */
+    public void execute(int index, Task task) {
+        final Worker worker = workers[index];
+        if (shutdown)
+            throw new RejectedExecutionException();
+        if (!worker.queue.offer(task)) {
+            try {
+                // usually called on the shared receive pool, which gets a spare thread while this one waits
+                AMQP10SharedExecutors.block(new AMQP10SharedExecutors.Blocker<Void>() {
+                    @Override
+                    Void call() throws InterruptedException {
+                        while (!worker.queue.offer(task, MAX_QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                            if (shutdown)
+                                throw new RejectedExecutionException();
+                        }
+                        return null;
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                throw e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            } catch (Exception e) {
+                throw new RejectedExecutionException(e);
+            }
+        }
+        worker.task.wakeUp();
+    }
+
+    /**
+     * Stops taking tasks and gives the workers at most {@code timeout} milliseconds to run the tasks already queued.
+     * Tasks that are still queued then are dropped; their messages are not settled and the broker delivers them again.
+     */
+    public void shutdown(int timeout) {
+        shutdown = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (Worker worker : workers)
+            worker.awaitDrained(deadline);
+        for (Worker worker : workers) {
+            worker.task.cancel(timeout);
+            worker.queue.clear();
+        }
+    }
+
+    private static final class Worker implements AMQP10SerialTask.Step {
+        private final String channelId = UUID.randomUUID().toString();
+        private final BlockingQueue<Task> queue;
+        // the tasks call the adapter, so they may block
+        private final AMQP10SerialTask task = new AMQP10SerialTask(this, AMQP10SharedExecutors.receive(), true);
+
+        Worker(int queueCapacity) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        @Override
+        public long run() {
+            for (int i = 0; i < TASKS_PER_RUN; i++) {
+                Task next = queue.poll();
+                if (next == null) {
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                    // execute() wakes the worker up after it queued the next task
+                    return AMQP10SerialTask.ON_WAKE_UP;
+                }
+                try {
+                    next.run(channelId);
+                } catch (Exception e) {
+                    LOGGER.info("WORKER_TASK_ERROR", e, e.getMessage());
+                }
+            }
+            return AMQP10SerialTask.NOW;
+        }
+
+        synchronized void awaitDrained(long deadline) {
+            try {
+                long remaining;
+                while (!queue.isEmpty() && (remaining = deadline - System.nanoTime()) > 0)
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
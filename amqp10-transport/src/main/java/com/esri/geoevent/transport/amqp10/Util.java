@@ -2,7 +2,12 @@ package com.esri.geoevent.transport.amqp10;
 
 import com.esri.ges.framework.i18n.BundleLogger;
 import com.esri.ges.framework.i18n.BundleLoggerFactory;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.MessageAnnotations;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Properties;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.*;
 
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -27,4 +32,80 @@ public class Util {
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Looks up a message annotation such as {@code x-opt-partition-key} by its symbol name.
+     *
+     * @return the annotation value, or null if the message does not carry the annotation
+     */
+    static AMQPType getMessageAnnotation(AMQPMessage message, String name) {
+        MessageAnnotations annotations = message.getMessageAnnotations();
+        if (annotations == null)
+            return null;
+        try {
+            for (Map.Entry<AMQPType, AMQPType> entry : annotations.getValue().entrySet()) {
+                if (entry.getKey() instanceof AMQPSymbol && name.equals(((AMQPSymbol) entry.getKey()).getValue()))
+                    return entry.getValue();
+            }
+        } catch (Exception ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * @return the group-id property, which Azure Service Bus uses to carry the session id, or null
+     */
+    static String getGroupId(AMQPMessage message) {
+        Properties properties = message.getProperties();
+        if (properties == null || properties.getGroupId() == null)
+            return null;
+        return properties.getGroupId().getValue();
+    }
+
+    /**
+     * Converts a scalar AMQP value to a String, Long, Double or Boolean. Timestamps become milliseconds since the epoch.
+     *
+     * @return the value, or null for binary, compound and unknown types
+     */
+    static Object toValue(Object value) {
+        if (value instanceof AMQPString || value instanceof AMQPSymbol)
+            return asString((AMQPType) value);
+        if (value instanceof AMQPBoolean)
+            return ((AMQPBoolean) value).getValue();
+        if (value instanceof AMQPLong)
+            return ((AMQPLong) value).getValue();
+        if (value instanceof AMQPInt)
+            return (long) ((AMQPInt) value).getValue();
+        if (value instanceof AMQPShort)
+            return (long) ((AMQPShort) value).getValue();
+        if (value instanceof AMQPByte)
+            return (long) ((AMQPByte) value).getValue();
+        if (value instanceof AMQPUnsignedInt)
+            return ((AMQPUnsignedInt) value).getValue();
+        if (value instanceof AMQPUnsignedShort)
+            return (long) ((AMQPUnsignedShort) value).getValue();
+        if (value instanceof AMQPUnsignedByte)
+            return (long) ((AMQPUnsignedByte) value).getValue();
+        if (value instanceof AMQPUnsignedLong)
+            return ((AMQPUnsignedLong) value).getValue();
+        if (value instanceof AMQPDouble)
+            return ((AMQPDouble) value).getValue();
+        if (value instanceof AMQPFloat)
+            return (double) ((AMQPFloat) value).getValue();
+        if (value instanceof AMQPTimestamp)
+            return ((AMQPTimestamp) value).getValue();
+        if (value instanceof AMQPUuid)
+            return String.valueOf(((AMQPUuid) value).getValue());
+        return null;
+    }
+
+    static String asString(AMQPType value) {
+        if (value == null)
+            return null;
+        if (value instanceof AMQPString)
+            return ((AMQPString) value).getValue();
+        if (value instanceof AMQPSymbol)
+            return ((AMQPSymbol) value).getValue();
+        return value.toString();
+    }
 }
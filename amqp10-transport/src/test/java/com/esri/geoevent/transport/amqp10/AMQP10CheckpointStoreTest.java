@@ -0,0 +1,112 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.swiftmq.amqp.v100.generated.messaging.message_format.MessageAnnotations;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.AMQPLong;
+import com.swiftmq.amqp.v100.types.AMQPString;
+import com.swiftmq.amqp.v100.types.AMQPSymbol;
+import com.swiftmq.amqp.v100.types.AMQPType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AMQP10CheckpointStoreTest {
+    private static final String HOSTNAME = "namespace";
+    private static final String EVENT_HUB = "orders";
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void checkpointsTheLowWatermarkOfOutOfOrderSettlements() throws Exception {
+        AMQP10CheckpointStore.Partition partition = newStore("1000").getPartition("0");
+        AMQPMessage[] messages = receive(partition, 5);
+        String start = partition.getSelector();
+
+        // the later messages are settled first, so the checkpoint cannot move past the first one yet
+        partition.record(messages[2]);
+        partition.record(messages[1]);
+        partition.record(messages[4]);
+        assertEquals(start, partition.getSelector());
+
+        partition.record(messages[0]);
+        assertEquals(selector(2), partition.getSelector());
+        partition.record(messages[3]);
+        assertEquals(selector(4), partition.getSelector());
+    }
+
+    @Test
+    public void forgetsMessagesOfThePreviousLink() throws Exception {
+        AMQP10CheckpointStore.Partition partition = newStore("1000").getPartition("0");
+        AMQPMessage[] messages = receive(partition, 3);
+        partition.record(messages[0]);
+        partition.reset();
+
+        // the messages the old link delivered but did not settle come again and are settled on the new link
+        partition.record(messages[1]);
+        assertEquals(selector(0), partition.getSelector());
+        AMQPMessage again = message(1);
+        partition.received(again);
+        partition.record(again);
+        assertEquals(selector(1), partition.getSelector());
+    }
+
+    @Test
+    public void writesAfterTheBatchSizeAndResumesFromTheFile() throws Exception {
+        AMQP10CheckpointStore store = newStore("3");
+        AMQP10CheckpointStore.Partition partition = store.getPartition("0");
+        AMQPMessage[] messages = receive(partition, 4);
+        partition.record(messages[1]);
+        partition.record(messages[0]);
+        Path file = folder.getRoot().toPath().resolve(HOSTNAME).resolve(EVENT_HUB).resolve("$Default").resolve("0.checkpoint");
+        assertFalse(Files.exists(file));
+
+        // the third settled message below the watermark fills the batch
+        partition.record(messages[2]);
+        assertTrue(Files.exists(file));
+        assertEquals(selector(2), newStore("3").getPartition("0").getSelector());
+
+        partition.record(messages[3]);
+        store.flush();
+        assertEquals(selector(3), newStore("3").getPartition("0").getSelector());
+    }
+
+    private AMQP10CheckpointStore newStore(String checkpointBatchSize) {
+        AMQP10EventHubInfo eventHubInfo = new AMQP10EventHubInfo(null, "4", AMQP10EventHubInfo.START_POSITION_EARLIEST, folder.getRoot().getPath(), checkpointBatchSize, "60000", null);
+        return new AMQP10CheckpointStore(eventHubInfo, eventHubInfo.getCheckpointDirectory(), HOSTNAME, EVENT_HUB);
+    }
+
+    private static AMQPMessage[] receive(AMQP10CheckpointStore.Partition partition, int count) throws Exception {
+        AMQPMessage[] messages = new AMQPMessage[count];
+        for (int i = 0; i < count; i++) {
+            messages[i] = message(i);
+            partition.received(messages[i]);
+        }
+        return messages;
+    }
+
+    private static AMQPMessage message(long sequenceNumber) throws Exception {
+        Map<AMQPType, AMQPType> annotations = new HashMap<>();
+        annotations.put(new AMQPSymbol("x-opt-offset"), new AMQPString(offset(sequenceNumber)));
+        annotations.put(new AMQPSymbol("x-opt-sequence-number"), new AMQPLong(sequenceNumber));
+        AMQPMessage message = new AMQPMessage();
+        message.setMessageAnnotations(new MessageAnnotations(annotations));
+        return message;
+    }
+
+    private static String offset(long sequenceNumber) {
+        return Long.toString(sequenceNumber * 512);
+    }
+
+    private static String selector(long sequenceNumber) {
+        return AMQP10CheckpointStore.offsetSelector(offset(sequenceNumber));
+    }
+}
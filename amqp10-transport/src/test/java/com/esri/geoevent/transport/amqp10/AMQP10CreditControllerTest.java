@@ -0,0 +1,97 @@
+package com.esri.geoevent.transport.amqp10;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AMQP10CreditControllerTest {
+    private static final int MIN_CREDIT = 50;
+    private static final int MAX_CREDIT = 1000;
+    // (MAX_CREDIT - MIN_CREDIT) / 20
+    private static final int INCREASE = 47;
+    private AMQP10CreditController controller;
+    private long now;
+
+    @Before
+    public void setUp() {
+        controller = new AMQP10CreditController(400, MIN_CREDIT, MAX_CREDIT, 1);
+        now = System.nanoTime();
+    }
+
+    @Test
+    public void waitsForTheEndOfTheInterval() throws Exception {
+        receive(300, 300);
+        controller.update(now + AMQP10CreditController.INTERVAL_NANOS / 2);
+        assertEquals(400, controller.getCredit());
+        controller.update(now + AMQP10CreditController.INTERVAL_NANOS);
+        assertEquals(400 + INCREASE, controller.getCredit());
+    }
+
+    @Test
+    public void halvesCreditUnderCongestion() throws Exception {
+        for (int expected : new int[]{200, 100, 50, 50}) {
+            receive(400, 400);
+            controller.congested();
+            interval();
+            assertEquals(expected, controller.getCredit());
+        }
+        // the congestion is forgotten with the interval
+        receive(40, 40);
+        interval();
+        assertEquals(MIN_CREDIT + INCREASE, controller.getCredit());
+    }
+
+    @Test
+    public void raisesCreditOfBusyAdapterThatKeepsUp() throws Exception {
+        int expected = 400;
+        for (int i = 0; i < 20; i++) {
+            receive(controller.getCredit(), controller.getCredit());
+            controller.processed(AMQP10CreditController.INTERVAL_NANOS, controller.getCredit());
+            interval();
+            expected = Math.min(MAX_CREDIT, expected + INCREASE);
+            assertEquals(expected, controller.getCredit());
+            assertEquals(0, controller.getBacklog());
+        }
+        assertEquals(MAX_CREDIT, controller.getCredit());
+        assertEquals(1.0, controller.getUtilization(), 0.01);
+    }
+
+    @Test
+    public void halvesCreditOnGrowingBacklog() throws Exception {
+        // a backlog that grows but stays below half the credit is not a reason to back off
+        receive(300, 250);
+        interval();
+        assertEquals(50, controller.getBacklog());
+        assertEquals(400 + INCREASE, controller.getCredit());
+
+        receive(400, 100);
+        interval();
+        assertEquals(350, controller.getBacklog());
+        assertEquals((400 + INCREASE) / 2, controller.getCredit());
+
+        // the backlog is large but no longer grows, so the credit stays
+        receive(100, 100);
+        interval();
+        assertEquals(350, controller.getBacklog());
+        assertEquals((400 + INCREASE) / 2, controller.getCredit());
+
+        // once it drains the credit grows again
+        receive(200, 550);
+        interval();
+        assertEquals(0, controller.getBacklog());
+        assertEquals((400 + INCREASE) / 2 + INCREASE, controller.getCredit());
+    }
+
+    private void receive(int received, int done) {
+        for (int i = 0; i < received; i++)
+            controller.received();
+        for (int i = 0; i < done; i++)
+            controller.done();
+    }
+
+    private void interval() {
+        now += AMQP10CreditController.INTERVAL_NANOS;
+        controller.update(now);
+    }
+}
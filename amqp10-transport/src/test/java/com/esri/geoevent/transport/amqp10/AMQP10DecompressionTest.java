@@ -0,0 +1,97 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Properties;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.AMQPSymbol;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class AMQP10DecompressionTest {
+    private static final int MAX_SIZE = 65536;
+
+    @Test
+    public void inflatesBodiesUpToTheMaximumSize() throws Exception {
+        for (int size : new int[]{1, 1000, 8192, 20000, MAX_SIZE - 1, MAX_SIZE}) {
+            byte[] body = body(size);
+            assertArrayEquals(body, extract(AMQP10Decompression.CODEC_GZIP, gzip(body), null));
+            assertArrayEquals(body, extract(AMQP10Decompression.CODEC_DEFLATE, deflate(body), null));
+        }
+    }
+
+    @Test
+    public void rejectsBodiesLargerThanTheMaximumSize() throws Exception {
+        for (int size : new int[]{MAX_SIZE + 1, MAX_SIZE * 16}) {
+            try {
+                extract(AMQP10Decompression.CODEC_GZIP, gzip(body(size)), null);
+                fail("inflated " + size + " bytes");
+            } catch (AMQP10TransportException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void followsTheContentEncoding() throws Exception {
+        byte[] body = body(5000);
+        assertArrayEquals(body, extract(AMQP10Decompression.CODEC_CONTENT_ENCODING, gzip(body), "gzip"));
+        assertArrayEquals(body, extract(AMQP10Decompression.CODEC_CONTENT_ENCODING, deflate(body), "Deflate"));
+        // bodies without or with an unknown content-encoding are passed on as they are
+        assertArrayEquals(body, extract(AMQP10Decompression.CODEC_CONTENT_ENCODING, body, null));
+        assertArrayEquals(body, extract(AMQP10Decompression.CODEC_CONTENT_ENCODING, body, "identity"));
+    }
+
+    @Test
+    public void noneKeepsTheDelegate() {
+        AMQP10BodyExtractor delegate = AMQP10BodyExtractors.defaultExtractor();
+        assertSame(delegate, AMQP10Decompression.wrap(delegate, AMQP10Decompression.CODEC_NONE, MAX_SIZE));
+    }
+
+    private static byte[] extract(String codec, final byte[] compressed, String contentEncoding) throws Exception {
+        AMQPMessage message = new AMQPMessage();
+        if (contentEncoding != null) {
+            Properties properties = new Properties();
+            properties.setContentEncoding(new AMQPSymbol(contentEncoding));
+            message.setProperties(properties);
+        }
+        AMQP10BodyExtractor extractor = AMQP10Decompression.wrap(new AMQP10BodyExtractor() {
+            @Override
+            public ByteBuffer extract(AMQPMessage message) {
+                return ByteBuffer.wrap(compressed);
+            }
+        }, codec, MAX_SIZE);
+        ByteBuffer body = extractor.extract(message);
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] body(int size) {
+        byte[] body = new byte[size];
+        for (int i = 0; i < size; i++)
+            body[i] = (byte) ('a' + i % 26);
+        return body;
+    }
+
+    private static byte[] gzip(byte[] body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(body);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,44 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.core.validation.ValidationException;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AMQP10DestinationInfoTest {
+
+    @Test
+    public void expandsRangesAndWeights() throws Exception {
+        List<AMQP10DestinationInfo> destinations = parse("orders, audit=3, geo-[1-3]/x");
+        assertEquals(5, destinations.size());
+        assertEquals("orders", destinations.get(0).getName());
+        assertEquals("audit", destinations.get(1).getName());
+        assertEquals(3, destinations.get(1).getWeight());
+        assertEquals("geo-1/x", destinations.get(2).getName());
+        assertEquals("geo-3/x", destinations.get(4).getName());
+        for (AMQP10DestinationInfo destination : destinations)
+            destination.validate();
+        assertEquals(1000, parse("geo-[1-1000]").size());
+        assertEquals(1, parse("geo-[7-7]").size());
+    }
+
+    @Test
+    public void rejectsReversedAndOversizedRanges() throws Exception {
+        for (String names : new String[]{"geo-[40-1]", "geo-[1-2000]", "geo-[0-99999999999]"}) {
+            List<AMQP10DestinationInfo> destinations = parse(names);
+            assertEquals(1, destinations.size());
+            try {
+                destinations.get(0).validate();
+                fail("accepted " + names);
+            } catch (ValidationException expected) {
+            }
+        }
+    }
+
+    private static List<AMQP10DestinationInfo> parse(String names) {
+        return AMQP10DestinationInfo.parse("Topic", names, "200", "0");
+    }
+}
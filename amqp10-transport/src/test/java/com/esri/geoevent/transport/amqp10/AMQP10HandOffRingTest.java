@@ -0,0 +1,122 @@
+package com.esri.geoevent.transport.amqp10;
+
+import org.junit.Test;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AMQP10HandOffRingTest {
+    private final AtomicInteger wakeUps = new AtomicInteger();
+    private final Runnable countWakeUps = new Runnable() {
+        @Override
+        public void run() {
+            wakeUps.incrementAndGet();
+        }
+    };
+
+    @Test
+    public void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(2, new AMQP10HandOffRing<Integer>(1, countWakeUps).capacity());
+        assertEquals(8, new AMQP10HandOffRing<Integer>(8, countWakeUps).capacity());
+        assertEquals(16, new AMQP10HandOffRing<Integer>(9, countWakeUps).capacity());
+    }
+
+    @Test
+    public void keepsOrderAcrossWrapAround() {
+        AMQP10HandOffRing<Integer> ring = new AMQP10HandOffRing<>(4, countWakeUps);
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 100; round++) {
+            // fill the ring completely, then drain a varying part of it, so head and tail wrap at every offset
+            while (ring.offer(next))
+                next++;
+            assertEquals(4, ring.size());
+            assertEquals(0, ring.remainingCapacity());
+            for (int i = 0; i <= round % 4; i++)
+                assertEquals(Integer.valueOf(expected++), ring.poll());
+        }
+        Integer element;
+        while ((element = ring.poll()) != null)
+            assertEquals(Integer.valueOf(expected++), element);
+        assertEquals(next, expected);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void wakesIdleConsumerOnce() {
+        AMQP10HandOffRing<Integer> ring = new AMQP10HandOffRing<>(4, countWakeUps);
+        ring.offer(1);
+        assertEquals(0, wakeUps.get());
+        assertEquals(Integer.valueOf(1), ring.poll());
+        assertNull(ring.poll());
+        assertTrue(ring.idle());
+        ring.offer(2);
+        ring.offer(3);
+        assertEquals(1, wakeUps.get());
+    }
+
+    @Test
+    public void doesNotGoIdleWithElementPending() {
+        AMQP10HandOffRing<Integer> ring = new AMQP10HandOffRing<>(4, countWakeUps);
+        assertNull(ring.poll());
+        ring.offer(1);
+        // the consumer saw the ring empty, but the element arrived before it went idle
+        assertFalse(ring.idle());
+        assertEquals(Integer.valueOf(1), ring.poll());
+        ring.offer(2);
+        assertEquals(0, wakeUps.get());
+    }
+
+    @Test
+    public void clearDropsElements() {
+        AMQP10HandOffRing<Integer> ring = new AMQP10HandOffRing<>(4, countWakeUps);
+        ring.offer(1);
+        ring.offer(2);
+        ring.clear();
+        assertEquals(0, ring.size());
+        assertNull(ring.poll());
+        for (int i = 0; i < 4; i++)
+            assertTrue(ring.offer(i));
+        assertEquals(Integer.valueOf(0), ring.poll());
+    }
+
+    @Test
+    public void handsOverBetweenThreadsWithoutLostWakeUp() throws Exception {
+        final int count = 200000;
+        final Semaphore woken = new Semaphore(0);
+        final AMQP10HandOffRing<Integer> ring = new AMQP10HandOffRing<>(64, new Runnable() {
+            @Override
+            public void run() {
+                woken.release();
+            }
+        });
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    while (!ring.offer(i))
+                        Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        int expected = 0;
+        while (expected < count) {
+            Integer element = ring.poll();
+            if (element != null) {
+                assertEquals(Integer.valueOf(expected++), element);
+            } else if (ring.idle() && !woken.tryAcquire(5, TimeUnit.SECONDS)) {
+                fail("consumer was not woken up after " + expected + " elements");
+            }
+        }
+        producer.join();
+        assertNull(ring.poll());
+    }
+}
@@ -0,0 +1,145 @@
+package com.esri.geoevent.transport.amqp10;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AMQP10LeaseCoordinatorTest {
+    private static final String GROUP = "orders";
+    private static final String NODE_A = "node-a";
+    private static final String NODE_B = "node-b";
+    // long enough that the scheduled renewals never run, the test renews by calling run()
+    private final AMQP10ClusterInfo clusterInfo = new AMQP10ClusterInfo(AMQP10ClusterInfo.MODE_LEASES, null, "600000");
+    private final MemoryLeaseStore store = new MemoryLeaseStore();
+    private final AtomicInteger changes = new AtomicInteger();
+    private final List<AMQP10LeaseCoordinator> coordinators = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (AMQP10LeaseCoordinator coordinator : coordinators)
+            coordinator.stop();
+        System.clearProperty(AMQP10EventHubInfo.CLUSTER_MEMBER_PROPERTY);
+    }
+
+    @Test
+    public void releasesMovedUnitsOneRenewalLater() throws Exception {
+        List<String> units = units(16);
+        List<String> sharedWithB = new ArrayList<>();
+        for (String unit : units) {
+            if (NODE_B.equals(AMQP10EventHubInfo.owner(Arrays.asList(NODE_A, NODE_B), unit)))
+                sharedWithB.add(unit);
+        }
+        assertFalse(sharedWithB.isEmpty());
+        List<String> keptByA = new ArrayList<>(units);
+        keptByA.removeAll(sharedWithB);
+
+        AMQP10LeaseCoordinator a = newCoordinator(NODE_A);
+        assertEquals(units, a.start(units));
+        // the units of the new member are still held by the first one
+        AMQP10LeaseCoordinator b = newCoordinator(NODE_B);
+        assertTrue(b.start(units).isEmpty());
+
+        // the first member sees the second one and tells the links of the moved units to stop, but keeps their leases
+        a.run();
+        assertEquals(keptByA, a.getOwnedUnits());
+        assertEquals(2, a.getMembers());
+        assertEquals(1, changes.get());
+        b.run();
+        assertTrue(b.getOwnedUnits().isEmpty());
+        for (String unit : sharedWithB)
+            assertEquals(NODE_A, store.owner("unit:" + unit));
+
+        // one renewal later the leases are released and taken over
+        a.run();
+        assertEquals(keptByA, a.getOwnedUnits());
+        b.run();
+        assertEquals(sharedWithB, b.getOwnedUnits());
+        assertEquals(2, b.getMembers());
+        for (String unit : sharedWithB)
+            assertEquals(NODE_B, store.owner("unit:" + unit));
+    }
+
+    @Test
+    public void releasesAllUnitsOnStop() throws Exception {
+        List<String> units = units(8);
+        AMQP10LeaseCoordinator a = newCoordinator(NODE_A);
+        a.start(units);
+        AMQP10LeaseCoordinator b = newCoordinator(NODE_B);
+        b.start(units);
+
+        // the leases are free at once, without waiting for them to expire
+        a.stop();
+        b.run();
+        assertEquals(units, b.getOwnedUnits());
+        assertEquals(1, b.getMembers());
+    }
+
+    private AMQP10LeaseCoordinator newCoordinator(String nodeId) {
+        System.setProperty(AMQP10EventHubInfo.CLUSTER_MEMBER_PROPERTY, nodeId);
+        AMQP10LeaseCoordinator coordinator = new AMQP10LeaseCoordinator(store, GROUP, clusterInfo, new AMQP10LeaseCoordinator.Listener() {
+            @Override
+            public void ownershipChanged() {
+                changes.incrementAndGet();
+            }
+        });
+        coordinators.add(coordinator);
+        return coordinator;
+    }
+
+    private static List<String> units(int count) {
+        List<String> units = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            units.add(Integer.toString(i));
+        return units;
+    }
+
+    /**
+     * Keeps the leases of one group in memory.
+     */
+    private static class MemoryLeaseStore implements AMQP10LeaseStore {
+        private final Map<String, AMQP10Lease> leases = new HashMap<>();
+
+        @Override
+        public synchronized List<AMQP10Lease> list(String group) {
+            long now = System.currentTimeMillis();
+            List<AMQP10Lease> live = new ArrayList<>();
+            for (AMQP10Lease lease : leases.values()) {
+                if (!lease.isExpired(now))
+                    live.add(lease);
+            }
+            return live;
+        }
+
+        @Override
+        public synchronized boolean acquire(String group, String name, String owner, long durationMillis) {
+            long now = System.currentTimeMillis();
+            AMQP10Lease lease = leases.get(name);
+            if (lease != null && !lease.isExpired(now) && !lease.getOwner().equals(owner))
+                return false;
+            leases.put(name, new AMQP10Lease(name, owner, now + durationMillis));
+            return true;
+        }
+
+        @Override
+        public synchronized void release(String group, String name, String owner) {
+            AMQP10Lease lease = leases.get(name);
+            if (lease != null && lease.getOwner().equals(owner))
+                leases.remove(name);
+        }
+
+        synchronized String owner(String name) {
+            AMQP10Lease lease = leases.get(name);
+            return lease != null ? lease.getOwner() : null;
+        }
+    }
+}
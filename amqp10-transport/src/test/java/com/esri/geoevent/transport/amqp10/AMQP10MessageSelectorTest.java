@@ -0,0 +1,114 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.swiftmq.amqp.v100.generated.messaging.message_format.ApplicationProperties;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.AMQPBoolean;
+import com.swiftmq.amqp.v100.types.AMQPDouble;
+import com.swiftmq.amqp.v100.types.AMQPLong;
+import com.swiftmq.amqp.v100.types.AMQPString;
+import com.swiftmq.amqp.v100.types.AMQPType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AMQP10MessageSelectorTest {
+    private AMQPMessage message;
+
+    @Before
+    public void setUp() throws Exception {
+        Map<AMQPType, AMQPType> properties = new HashMap<>();
+        properties.put(new AMQPString("region"), new AMQPString("north"));
+        properties.put(new AMQPString("speed"), new AMQPLong(42));
+        properties.put(new AMQPString("ratio"), new AMQPDouble(0.5));
+        properties.put(new AMQPString("urgent"), AMQPBoolean.TRUE);
+        properties.put(new AMQPString("code"), new AMQPString("A_1%"));
+        message = new AMQPMessage();
+        message.setApplicationProperties(new ApplicationProperties(properties));
+    }
+
+    @Test
+    public void comparisons() throws Exception {
+        assertTrue(matches("region = 'north'"));
+        assertFalse(matches("region = 'south'"));
+        assertTrue(matches("region <> 'south'"));
+        assertTrue(matches("speed > 40 AND speed <= 42"));
+        assertTrue(matches("speed = 42.0"));
+        assertTrue(matches("ratio < 1"));
+        assertTrue(matches("urgent = TRUE"));
+        assertFalse(matches("speed < 'fast'"));
+    }
+
+    @Test
+    public void arithmetic() throws Exception {
+        assertTrue(matches("speed * 2 - 4 = 80"));
+        assertTrue(matches("speed / 4 = 10"));
+        assertTrue(matches("speed / 4.0 = 10.5"));
+        assertTrue(matches("-speed < 0"));
+        assertFalse(matches("speed / 0 = 0"));
+    }
+
+    @Test
+    public void betweenInLike() throws Exception {
+        assertTrue(matches("speed BETWEEN 40 AND 50"));
+        assertTrue(matches("speed NOT BETWEEN 0 AND 10"));
+        assertTrue(matches("region IN ('north', 'east')"));
+        assertFalse(matches("region NOT IN ('north', 'east')"));
+        assertTrue(matches("region LIKE 'n_r%'"));
+        assertTrue(matches("code LIKE 'A!_1!%' ESCAPE '!'"));
+        assertFalse(matches("region LIKE 'n.r%'"));
+    }
+
+    @Test
+    public void missingPropertiesAreUnknown() throws Exception {
+        assertFalse(matches("missing = 1"));
+        assertFalse(matches("NOT (missing = 1)"));
+        assertTrue(matches("missing IS NULL"));
+        assertTrue(matches("region IS NOT NULL"));
+        // unknown OR true is true, unknown AND false is false
+        assertTrue(matches("missing = 1 OR region = 'north'"));
+        assertTrue(matches("NOT (missing = 1 AND region = 'south')"));
+        assertFalse(matches("missing = 1 AND region = 'north'"));
+    }
+
+    @Test
+    public void messageWithoutProperties() throws Exception {
+        AMQPMessage empty = new AMQPMessage();
+        assertFalse(AMQP10MessageSelector.compile("region = 'north'").matches(empty));
+        assertTrue(AMQP10MessageSelector.compile("region IS NULL").matches(empty));
+    }
+
+    @Test
+    public void invalidSelectors() {
+        assertInvalid("region =");
+        assertInvalid("region = 'north' AND");
+        assertInvalid("(region = 'north'");
+        assertInvalid("region IN (1, 2)");
+        assertInvalid("region NOT 'north'");
+        assertInvalid("code LIKE 'A%' ESCAPE '!!'");
+    }
+
+    @Test
+    public void keepsText() throws Exception {
+        assertEquals("region = 'north'", AMQP10MessageSelector.compile("region = 'north'").getText());
+    }
+
+    private boolean matches(String selector) throws ParseException {
+        return AMQP10MessageSelector.compile(selector).matches(message);
+    }
+
+    private static void assertInvalid(String selector) {
+        try {
+            AMQP10MessageSelector.compile(selector);
+            fail("accepted " + selector);
+        } catch (ParseException expected) {
+        }
+    }
+}
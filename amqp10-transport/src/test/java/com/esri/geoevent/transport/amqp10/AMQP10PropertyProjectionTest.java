@@ -0,0 +1,89 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.swiftmq.amqp.v100.generated.messaging.message_format.ApplicationProperties;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.MessageIdString;
+import com.swiftmq.amqp.v100.generated.messaging.message_format.Properties;
+import com.swiftmq.amqp.v100.messaging.AMQPMessage;
+import com.swiftmq.amqp.v100.types.AMQPLong;
+import com.swiftmq.amqp.v100.types.AMQPString;
+import com.swiftmq.amqp.v100.types.AMQPType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class AMQP10PropertyProjectionTest {
+    private AMQPMessage message;
+
+    @Before
+    public void setUp() throws Exception {
+        Map<AMQPType, AMQPType> properties = new HashMap<>();
+        properties.put(new AMQPString("region"), new AMQPString("north \"east\""));
+        properties.put(new AMQPString("speed"), new AMQPLong(42));
+        message = new AMQPMessage();
+        message.setApplicationProperties(new ApplicationProperties(properties));
+        Properties header = new Properties();
+        header.setMessageId(new MessageIdString("id-1"));
+        message.setProperties(header);
+    }
+
+    @Test
+    public void mergesIntoJsonObject() throws Exception {
+        assertEquals("{\"region\":\"north \\\"east\\\"\",\"speed\":42,\"a\":1}", project("region,speed", AMQP10PropertyProjection.FORMAT_JSON, "{\"a\":1}"));
+        assertEquals("{\"speed\":42, \"a\":1}", project("speed", AMQP10PropertyProjection.FORMAT_JSON, "  { \"a\":1}"));
+    }
+
+    @Test
+    public void mergesIntoEmptyJsonObject() throws Exception {
+        assertEquals("{\"speed\":42}", project("speed", AMQP10PropertyProjection.FORMAT_JSON, "{}"));
+        assertEquals("{\"speed\":42 }", project("speed", AMQP10PropertyProjection.FORMAT_JSON, "{ }"));
+    }
+
+    @Test
+    public void wrapsBodyThatIsNoJsonObject() throws Exception {
+        assertEquals("{\"speed\":42,\"body\":[1,2]}", project("speed", AMQP10PropertyProjection.FORMAT_JSON, "[1,2]"));
+        assertEquals("{\"speed\":42,\"body\":\"text\"}", project("speed", AMQP10PropertyProjection.FORMAT_JSON, "\"text\""));
+    }
+
+    @Test
+    public void missingKeysAreNull() throws Exception {
+        assertEquals("{\"missing\":null,\"a\":1}", project("missing", AMQP10PropertyProjection.FORMAT_JSON, "{\"a\":1}"));
+        assertEquals(",42,body", project("missing,speed", AMQP10PropertyProjection.FORMAT_TEXT, "body"));
+    }
+
+    @Test
+    public void prefixesText() throws Exception {
+        assertEquals("\"north \"\"east\"\"\",42,id-1,body", project("property:region,speed,header:message-id", AMQP10PropertyProjection.FORMAT_TEXT, "body"));
+    }
+
+    @Test
+    public void compile() throws Exception {
+        assertNull(AMQP10PropertyProjection.compile(" , ", AMQP10PropertyProjection.FORMAT_TEXT, AMQP10BodyExtractors.defaultExtractor()));
+        try {
+            AMQP10PropertyProjection.compile("header:unknown", AMQP10PropertyProjection.FORMAT_TEXT, AMQP10BodyExtractors.defaultExtractor());
+            fail("accepted an unknown header field");
+        } catch (ParseException expected) {
+        }
+    }
+
+    private String project(String keys, String format, final String body) throws Exception {
+        AMQP10PropertyProjection projection = AMQP10PropertyProjection.compile(keys, format, new AMQP10BodyExtractor() {
+            @Override
+            public ByteBuffer extract(AMQPMessage message) {
+                return ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        ByteBuffer projected = projection.extract(message);
+        byte[] bytes = new byte[projected.remaining()];
+        projected.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,189 @@
+package com.esri.geoevent.transport.amqp10;
+
+import com.esri.ges.messaging.ByteListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AMQP10SpoolTest {
+    private static final int SEGMENT_SIZE = 4096;
+    private static final String HOSTNAME = "broker";
+    private static final String DESTINATION = "queue";
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private final BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+    private final ByteListener listener = new ByteListener() {
+        @Override
+        public void receive(ByteBuffer buffer, String channelId) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            delivered.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+    };
+    private AMQP10Spool spool;
+
+    @Before
+    public void setUp() {
+        spool = newSpool();
+    }
+
+    @After
+    public void tearDown() {
+        spool.stop();
+    }
+
+    @Test
+    public void replaysAppendedRecordsOnce() throws Exception {
+        spool.start(listener);
+        long sequence = 0;
+        for (String body : new String[]{"a", "bb", "ccc", "dddd", "eeeee"})
+            sequence = spool.append(0, utf8(body));
+        spool.sync(sequence);
+        for (String body : new String[]{"a", "bb", "ccc", "dddd", "eeeee"})
+            assertEquals(body, next());
+        spool.stop();
+
+        // the consumed marks survive the restart
+        spool = newSpool();
+        spool.start(listener);
+        assertEquals(0, spool.getBacklog());
+        assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void recoversUnconsumedRecords() throws Exception {
+        SegmentWriter segment = new SegmentWriter();
+        segment.record("consumed", true, false);
+        segment.record("first", false, false);
+        segment.record("second", false, false);
+        segment.write(0);
+
+        spool.start(listener);
+        assertEquals("first", next());
+        assertEquals("second", next());
+        assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void stopsAtTornRecord() throws Exception {
+        SegmentWriter segment = new SegmentWriter();
+        segment.record("first", false, false);
+        segment.record("torn", false, true);
+        segment.record("lost", false, false);
+        segment.write(0);
+
+        spool.start(listener);
+        assertEquals("first", next());
+        assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+        // the next append overwrites the torn record
+        spool.sync(spool.append(0, utf8("appended")));
+        assertEquals("appended", next());
+        assertNull(delivered.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void recoversSegmentsInOrder() throws Exception {
+        SegmentWriter older = new SegmentWriter();
+        older.record("first", false, false);
+        older.write(1);
+        SegmentWriter newer = new SegmentWriter();
+        newer.record("second", false, false);
+        newer.write(2);
+
+        spool.start(listener);
+        assertEquals("first", next());
+        assertEquals("second", next());
+        // the replayed segment is deleted, the last one is kept to append to
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Files.exists(segmentFile(1)) && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        assertFalse(Files.exists(segmentFile(1)));
+        assertTrue(Files.exists(segmentFile(2)));
+    }
+
+    @Test
+    public void shortensDirectoryNamesOfManyDestinations() throws Exception {
+        List<String> subscriptions = new ArrayList<>();
+        for (int i = 1; i <= 40; i++)
+            subscriptions.add("orders/Subscriptions/geo-" + i);
+        String name = AMQP10Spool.directoryName(subscriptions);
+        assertTrue(name.length() < 100);
+        List<String> reversed = new ArrayList<>(subscriptions);
+        Collections.reverse(reversed);
+        assertEquals(name, AMQP10Spool.directoryName(reversed));
+        assertFalse(name.equals(AMQP10Spool.directoryName(subscriptions.subList(0, 39))));
+        assertEquals(DESTINATION, AMQP10Spool.directoryName(Collections.singletonList(DESTINATION)));
+
+        spool.stop();
+        AMQP10SpoolInfo spoolInfo = new AMQP10SpoolInfo("true", folder.getRoot().getPath(), String.valueOf(SEGMENT_SIZE), "4", "100");
+        spool = new AMQP10Spool(spoolInfo, HOSTNAME, subscriptions, Collections.<AMQP10InputMetrics>emptyList());
+        spool.start(listener);
+        spool.sync(spool.append(0, utf8("a")));
+        assertEquals("a", next());
+        Path manifest = new File(folder.getRoot(), HOSTNAME + File.separator + name).toPath().resolve("destinations.txt");
+        assertEquals(subscriptions, Files.readAllLines(manifest, StandardCharsets.UTF_8));
+    }
+
+    private AMQP10Spool newSpool() {
+        AMQP10SpoolInfo spoolInfo = new AMQP10SpoolInfo("true", folder.getRoot().getPath(), String.valueOf(SEGMENT_SIZE), "4", "100");
+        return new AMQP10Spool(spoolInfo, HOSTNAME, Collections.singletonList(DESTINATION), Collections.<AMQP10InputMetrics>emptyList());
+    }
+
+    private String next() throws InterruptedException {
+        return delivered.poll(5, TimeUnit.SECONDS);
+    }
+
+    private Path segmentFile(long index) {
+        return new File(folder.getRoot(), HOSTNAME + File.separator + DESTINATION).toPath().resolve(String.format("%019d.segment", index));
+    }
+
+    private static ByteBuffer utf8(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a segment file in the record format of the spool: length, CRC-32 of the body and source index, followed by
+     * the body padded to four bytes. A negative length marks a consumed record.
+     */
+    private class SegmentWriter {
+        private final ByteBuffer buffer = ByteBuffer.allocate(SEGMENT_SIZE);
+
+        void record(String text, boolean consumed, boolean torn) {
+            byte[] body = text.getBytes(StandardCharsets.UTF_8);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            int position = buffer.position();
+            buffer.putInt(consumed ? -body.length : body.length);
+            buffer.putInt(torn ? (int) crc.getValue() + 1 : (int) crc.getValue());
+            buffer.putInt(0);
+            buffer.put(body);
+            buffer.position(position + 12 + ((body.length + 3) & ~3));
+        }
+
+        void write(long index) throws Exception {
+            Path file = segmentFile(index);
+            Files.createDirectories(file.getParent());
+            Files.write(file, buffer.array());
+        }
+    }
+}